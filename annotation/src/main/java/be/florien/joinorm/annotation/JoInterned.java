@@ -0,0 +1,15 @@
+package be.florien.joinorm.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a String field whose values repeat a lot, as types or statuses: the generated select method deduplicates the values read through a
+ * pool, holding one instance per distinct value.
+ */
+
+@Target(value = ElementType.FIELD)
+public @interface JoInterned {
+
+    boolean isGlobal() default false; // share the pool between all the queries, holding its values weakly, instead of one pool per query
+}
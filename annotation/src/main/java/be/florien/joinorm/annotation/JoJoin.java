@@ -17,6 +17,12 @@ public @interface JoJoin {
     Class<? extends DBTable> getTableClass() default DBTable.class;
     boolean isReferenceJoin() default false;
     boolean isLeftJoin() default false;
+    /**
+     * The relation is loaded on first access instead of being joined, getTableRef is mandatory. The field must be declared as a
+     * {@link be.florien.joinorm.architecture.LazyRelation LazyRelation} of the model for a single object, and as a List or a
+     * {@link be.florien.joinorm.architecture.LazyList LazyList} of the model for a list.
+     */
+    boolean isLazy() default false;
     String getTableRef() default IGNORE; //todo tableref, alias, fieldName : how to handle ?
     String getAlias() default IGNORE;
 
@@ -0,0 +1,33 @@
+package be.florien.joinorm.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Declare a query on a method of an interface. An implementation of the interface named {@code <Interface>Impl} is generated, holding the SQL
+ * as a constant and parsing the cursor directly into the model, without building a DBTable at runtime.
+ * <p>
+ * The method returns either the model annotated with {@link JoTable} or a List of it. Each of its parameters is bound, in order, to a ? of
+ * {@link #where()}.
+ */
+
+@Target(value = ElementType.METHOD)
+public @interface JoQuery {
+
+    String STRING_IGNORE = "#ignore";
+
+    /**
+     * The fields of the model to select. A field of a model joined one to one is selected with "joinField.field".
+     */
+    String[] fields();
+
+    /**
+     * The WHERE clause. The model's table is named by its table name, and the joined tables by the name of their join field.
+     */
+    String where() default STRING_IGNORE;
+
+    /**
+     * The ORDER BY clause, named the same way as {@link #where()}.
+     */
+    String orderBy() default STRING_IGNORE;
+}
@@ -15,4 +15,5 @@ public @interface JoTable {
     boolean isGeneratingWrite() default true;
     boolean isGeneratingSelect() default true;
     String tableName() default STRING_IGNORE;
+    boolean isGeneratingParcelable() default false; // generate a <Model>Parcel, Parcelable holding the model written with its <Model>Codec
 }
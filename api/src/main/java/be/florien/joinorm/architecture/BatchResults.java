@@ -0,0 +1,51 @@
+package be.florien.joinorm.architecture;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of several DBTable queried together by {@link DBTable#getResults(android.database.sqlite.SQLiteOpenHelper, DBTable[])}, retrieved
+ * with the DBTable which produced them so that their type is kept.
+ */
+public final class BatchResults {
+
+    /*
+     * FIELDS
+     */
+
+    private final Map<DBTable<?>, List<?>> resultsByTable = new IdentityHashMap<>();
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    BatchResults() {
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * @param table One of the DBTable given to {@link DBTable#getResults(android.database.sqlite.SQLiteOpenHelper, DBTable[])}
+     * @param <T>   model object representing the table
+     * @return The results of the table
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(DBTable<T> table) {
+        if (!resultsByTable.containsKey(table)) {
+            throw new DBArchitectureException("The DBTable " + table.getDataName() + " wasn't part of this batch", null);
+        }
+        return (List<T>) resultsByTable.get(table);
+    }
+
+    /*
+     * PACKAGE METHODS
+     */
+
+    <T> void put(DBTable<T> table, List<T> results) {
+        resultsByTable.put(table, Collections.unmodifiableList(results));
+    }
+}
@@ -0,0 +1,71 @@
+package be.florien.joinorm.architecture;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Changes of the results of a {@link LiveQuery} between two refreshes. The objects are listed in the order of their ID.
+ *
+ * @param <T> model object representing the table
+ */
+public final class ChangeSet<T> {
+
+    /*
+     * FIELDS
+     */
+
+    private final List<T> results;
+    private final List<T> inserted;
+    private final List<T> updated;
+    private final List<T> deleted;
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    ChangeSet(List<T> results, List<T> inserted, List<T> updated, List<T> deleted) {
+        this.results = Collections.unmodifiableList(results);
+        this.inserted = Collections.unmodifiableList(inserted);
+        this.updated = Collections.unmodifiableList(updated);
+        this.deleted = Collections.unmodifiableList(deleted);
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * @return The complete results after the refresh, ordered by ID
+     */
+    public List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * @return The objects which weren't in the previous results
+     */
+    public List<T> getInserted() {
+        return inserted;
+    }
+
+    /**
+     * @return The objects queried again which replaced the ones with the same ID in the previous results
+     */
+    public List<T> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return The objects of the previous results which aren't returned by the query anymore
+     */
+    public List<T> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return true if nothing was inserted, updated nor deleted
+     */
+    public boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+    }
+}
@@ -0,0 +1,19 @@
+package be.florien.joinorm.architecture;
+
+/**
+ * Callback receiving the changes of the results of a {@link LiveQuery} refreshed incrementally, as created by
+ * {@link DBQuery#observeChanges(android.database.sqlite.SQLiteOpenHelper, ChangeSetObserver, long) observeChanges}.
+ *
+ * @param <T> model object representing the table
+ */
+public interface ChangeSetObserver<T> {
+
+    /**
+     * Called on the LiveQuery thread each time the results are refreshed. After a refresh of all the results, an object is only reported
+     * as updated if it isn't {@link Object#equals(Object) equal} to the previous one with the same ID, so a model object which doesn't
+     * override equals is reported as updated each time.
+     *
+     * @param changeSet The objects inserted, updated and deleted, and the complete new result
+     */
+    void onChanged(ChangeSet<T> changeSet);
+}
@@ -0,0 +1,185 @@
+package be.florien.joinorm.architecture;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.florien.joinorm.primitivefield.BooleanField;
+import be.florien.joinorm.primitivefield.DoubleField;
+import be.florien.joinorm.primitivefield.IntField;
+
+/**
+ * Fill a {@link ColumnarTable} for a DBTable and its inner tables from the rows of its query. A row of an inner table is added once for
+ * each (parent row, ID) met while parsing the same root row, so the repetition of the rows caused by the other joins is ignored.
+ */
+class ColumnarParser {
+
+    /*
+     * FIELDS
+     */
+
+    private final ColumnarTable result;
+    private final List<DBPrimitiveField<?>> primitives;
+    private final int[] types;
+    private final int idColumnCount;
+    private final int firstColumn;
+    private final boolean isRoot;
+    private final List<ColumnarParser> children = new ArrayList<>();
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private String lastId = null;
+    private int lastRow = -1;
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    /**
+     * Constructs the parser of table and of all its inner tables
+     *
+     * @param table       The definition of the table
+     * @param firstColumn The first column of table in the cursor
+     * @param isRoot      Whether table is the one queried, whose rows are already grouped by ID
+     */
+    ColumnarParser(DBTable<?> table, int firstColumn, boolean isRoot) {
+        this.firstColumn = firstColumn;
+        this.isRoot = isRoot;
+        primitives = table.getPrimitiveQueries();
+        idColumnCount = table.getIdColumnCount();
+        if (!table.getLazyJoins().isEmpty()) {
+            throw new DBArchitectureException("Lazy tables are not supported by columnar results in " + table.getDataName(), null);
+        }
+        String[] columnNames = new String[primitives.size()];
+        types = new int[primitives.size()];
+        for (int column = 0; column < primitives.size(); column++) {
+            DBPrimitiveField<?> primitive = primitives.get(column);
+            columnNames[column] = primitive.getDataName();
+            if (primitive instanceof IntField) {
+                types[column] = ColumnarTable.TYPE_INT;
+            } else if (primitive instanceof DoubleField) {
+                types[column] = ColumnarTable.TYPE_DOUBLE;
+            } else if (primitive instanceof BooleanField) {
+                types[column] = ColumnarTable.TYPE_BOOLEAN;
+            } else {
+                types[column] = ColumnarTable.TYPE_OBJECT;
+            }
+        }
+        result = new ColumnarTable(table.getDataName(), columnNames, types);
+
+        int childColumn = firstColumn + primitives.size();
+        for (DBTable<?> innerTable : table.getTableQueries()) {
+            if (innerTable.isRepeatableTable()) {
+                throw new DBArchitectureException("Repeatable tables are not supported by columnar results in " + innerTable.getDataName(), null);
+            }
+            ColumnarParser child = new ColumnarParser(innerTable, childColumn, false);
+            children.add(child);
+            result.addChild(child.result);
+            childColumn += innerTable.getColumnCount();
+        }
+    }
+
+    /*
+     * PACKAGE METHODS
+     */
+
+    /**
+     * Read all the rows of the cursor, then group the rows of the inner tables by parent
+     *
+     * @param cursor The cursor of the query, before its first row
+     * @return The filled ColumnarTable
+     */
+    ColumnarTable parse(Cursor cursor) {
+        while (cursor.moveToNext()) {
+            readRow(cursor, 0);
+        }
+        result.finish(1);
+        return result;
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    private void readRow(Cursor cursor, int parentRow) {
+        if (cursor.isNull(firstColumn)) {
+            lastId = null;
+            return;
+        }
+
+        String id = isRoot ? getId(cursor) : parentRow + "|" + getId(cursor);
+        int row;
+        if (id.equals(lastId)) {
+            row = lastRow;
+        } else if (isRoot) {
+            row = result.addRow(parentRow);
+            readValues(cursor, row);
+            for (ColumnarParser child : children) {
+                child.clearRows();
+            }
+        } else {
+            Integer knownRow = rowsById.get(id);
+            if (knownRow == null) {
+                row = result.addRow(parentRow);
+                readValues(cursor, row);
+                rowsById.put(id, row);
+            } else {
+                row = knownRow;
+            }
+        }
+        lastId = id;
+        lastRow = row;
+
+        for (ColumnarParser child : children) {
+            child.readRow(cursor, row);
+        }
+    }
+
+    /**
+     * Forget the rows met for the previous root row, which can't be the parent of the next rows
+     */
+    private void clearRows() {
+        rowsById.clear();
+        lastId = null;
+        for (ColumnarParser child : children) {
+            child.clearRows();
+        }
+    }
+
+    private String getId(Cursor cursor) {
+        if (idColumnCount == 1) {
+            return cursor.getString(firstColumn);
+        }
+        StringBuilder id = new StringBuilder();
+        for (int offset = 0; offset < idColumnCount; offset++) {
+            id.append(cursor.getString(firstColumn + offset)).append('|');
+        }
+        return id.toString();
+    }
+
+    private void readValues(Cursor cursor, int row) {
+        for (int column = 0; column < primitives.size(); column++) {
+            int cursorColumn = firstColumn + column;
+            if (types[column] != ColumnarTable.TYPE_OBJECT && cursor.isNull(cursorColumn)) {
+                result.setNull(column, row);
+                continue;
+            }
+            switch (types[column]) {
+                case ColumnarTable.TYPE_INT:
+                    result.setInt(column, row, cursor.getInt(cursorColumn));
+                    break;
+                case ColumnarTable.TYPE_DOUBLE:
+                    result.setDouble(column, row, cursor.getDouble(cursorColumn));
+                    break;
+                case ColumnarTable.TYPE_BOOLEAN:
+                    result.setBoolean(column, row, cursor.getInt(cursorColumn) == 1);
+                    break;
+                default:
+                    DBPrimitiveField<?> primitive = primitives.get(column);
+                    primitive.extractRowValue(cursor, cursorColumn);
+                    result.setObject(column, row, primitive.currentObject);
+            }
+        }
+    }
+}
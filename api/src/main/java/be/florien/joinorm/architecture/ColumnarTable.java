@@ -0,0 +1,306 @@
+package be.florien.joinorm.architecture;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of a {@link DBTable} stored by column instead of by object: each selected column of a table is a primitive array (int, double,
+ * boolean) or an array of objects (String), and each inner table is another ColumnarTable whose rows are grouped by parent row, the rows of
+ * parent row p going from {@link #getFirstRowOf(int) getFirstRowOf(p)} for {@link #getRowCountOf(int) getRowCountOf(p)} rows.
+ * <p>
+ * A null int, double or boolean is stored as 0 or false, and marked as null for {@link #isNull(int, int)}. Once filled by {@link DBTable#getColumnarResult}, a ColumnarTable is only read,
+ * and can be read by several threads at the same time.
+ */
+public final class ColumnarTable {
+
+    /*
+     * CONSTANTS
+     */
+
+    static final int TYPE_INT = 0;
+    static final int TYPE_DOUBLE = 1;
+    static final int TYPE_BOOLEAN = 2;
+    static final int TYPE_OBJECT = 3;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * FIELDS
+     */
+
+    private final String name;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final int[] types;
+    private final Object[] columns;
+    private final boolean[][] nulls;
+    private final Map<String, ColumnarTable> children = new LinkedHashMap<>();
+    private int size = 0;
+    private int[] parentRows = new int[INITIAL_CAPACITY];
+    private int[] parentOffsets = new int[]{0, 0};
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    /**
+     * Constructs a new empty ColumnarTable
+     *
+     * @param name        The name of the table, or its alias
+     * @param columnNames The names of the columns selected
+     * @param types       The type of each column, one of the TYPE constants
+     */
+    ColumnarTable(String name, String[] columnNames, int[] types) {
+        this.name = name;
+        this.types = types;
+        columns = new Object[types.length];
+        nulls = new boolean[types.length][];
+        for (int column = 0; column < types.length; column++) {
+            columnIndexes.put(columnNames[column], column);
+            columns[column] = newColumn(types[column], INITIAL_CAPACITY);
+            nulls[column] = new boolean[INITIAL_CAPACITY];
+        }
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * @return The name of the table, or its alias
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of rows of this table
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Return the index of a column, to give to the get methods
+     *
+     * @param columnName The name of the column as in the database's table
+     * @return The index of the column, or -1 if it wasn't selected
+     */
+    public int getColumnIndex(String columnName) {
+        Integer index = columnIndexes.get(columnName);
+        return index == null ? -1 : index;
+    }
+
+    public int getInt(int column, int row) {
+        return ((int[]) columns[column])[row];
+    }
+
+    public double getDouble(int column, int row) {
+        return ((double[]) columns[column])[row];
+    }
+
+    public boolean getBoolean(int column, int row) {
+        return ((boolean[]) columns[column])[row];
+    }
+
+    public String getString(int column, int row) {
+        return (String) ((Object[]) columns[column])[row];
+    }
+
+    public Object getObject(int column, int row) {
+        return ((Object[]) columns[column])[row];
+    }
+
+    /**
+     * Check if the value of a column was NULL in the database, the get methods of the primitive columns returning 0 or false
+     *
+     * @param column The index of the column
+     * @param row    The row
+     * @return true if the value is null
+     */
+    public boolean isNull(int column, int row) {
+        return nulls[column][row];
+    }
+
+    /**
+     * Return the inner table with the name given
+     *
+     * @param name The name of the inner table, or its alias
+     * @return The inner table, or null if it wasn't selected
+     */
+    public ColumnarTable getChild(String name) {
+        return children.get(name);
+    }
+
+    /**
+     * @param row A row of this table
+     * @return The row of the parent table containing it
+     */
+    public int getParentRow(int row) {
+        return parentRows[row];
+    }
+
+    /**
+     * @param parentRow A row of the parent table
+     * @return The first row of this table contained by parentRow
+     */
+    public int getFirstRowOf(int parentRow) {
+        return parentOffsets[parentRow];
+    }
+
+    /**
+     * @param parentRow A row of the parent table
+     * @return The number of rows of this table contained by parentRow
+     */
+    public int getRowCountOf(int parentRow) {
+        return parentOffsets[parentRow + 1] - parentOffsets[parentRow];
+    }
+
+    /*
+     * PACKAGE METHODS
+     */
+
+    void addChild(ColumnarTable child) {
+        children.put(child.name, child);
+    }
+
+    /**
+     * Add a new row, whose values must then be set
+     *
+     * @param parentRow The row of the parent table containing it
+     * @return The index of the new row
+     */
+    int addRow(int parentRow) {
+        if (size == parentRows.length) {
+            int capacity = size * 2;
+            parentRows = copyOf(parentRows, capacity);
+            for (int column = 0; column < columns.length; column++) {
+                Object newColumn = newColumn(types[column], capacity);
+                System.arraycopy(columns[column], 0, newColumn, 0, size);
+                columns[column] = newColumn;
+                boolean[] newNulls = new boolean[capacity];
+                System.arraycopy(nulls[column], 0, newNulls, 0, size);
+                nulls[column] = newNulls;
+            }
+        }
+        parentRows[size] = parentRow;
+        return size++;
+    }
+
+    void setInt(int column, int row, int value) {
+        ((int[]) columns[column])[row] = value;
+    }
+
+    void setDouble(int column, int row, double value) {
+        ((double[]) columns[column])[row] = value;
+    }
+
+    void setBoolean(int column, int row, boolean value) {
+        ((boolean[]) columns[column])[row] = value;
+    }
+
+    void setObject(int column, int row, Object value) {
+        ((Object[]) columns[column])[row] = value;
+        nulls[column][row] = value == null;
+    }
+
+    void setNull(int column, int row) {
+        nulls[column][row] = true;
+    }
+
+    /**
+     * Group the rows of this table and of all its inner tables by parent row, keeping their order inside a parent row, and compute the
+     * offsets of each group.
+     *
+     * @param parentSize The number of rows of the parent table
+     */
+    void finish(int parentSize) {
+        int[] newRows = groupByParent(parentSize);
+        for (ColumnarTable child : children.values()) {
+            for (int row = 0; row < child.size; row++) {
+                child.parentRows[row] = newRows[child.parentRows[row]];
+            }
+            child.finish(size);
+        }
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    /**
+     * Reorder the rows by parent row, with a stable counting sort
+     *
+     * @return The new index of each former row
+     */
+    private int[] groupByParent(int parentSize) {
+        parentOffsets = new int[parentSize + 1];
+        for (int row = 0; row < size; row++) {
+            parentOffsets[parentRows[row] + 1]++;
+        }
+        for (int parentRow = 0; parentRow < parentSize; parentRow++) {
+            parentOffsets[parentRow + 1] += parentOffsets[parentRow];
+        }
+        int[] nextRows = copyOf(parentOffsets, parentSize);
+        int[] newRows = new int[size];
+        boolean isOrdered = true;
+        for (int row = 0; row < size; row++) {
+            newRows[row] = nextRows[parentRows[row]]++;
+            isOrdered = isOrdered && newRows[row] == row;
+        }
+        if (!isOrdered) {
+            int[] newParentRows = new int[size];
+            for (int row = 0; row < size; row++) {
+                newParentRows[newRows[row]] = parentRows[row];
+            }
+            parentRows = newParentRows;
+            for (int column = 0; column < columns.length; column++) {
+                columns[column] = reorder(columns[column], types[column], newRows);
+                boolean[] newNulls = new boolean[size];
+                for (int row = 0; row < size; row++) {
+                    newNulls[newRows[row]] = nulls[column][row];
+                }
+                nulls[column] = newNulls;
+            }
+        }
+        return newRows;
+    }
+
+    private Object reorder(Object column, int type, int[] newRows) {
+        Object newColumn = newColumn(type, size);
+        for (int row = 0; row < size; row++) {
+            switch (type) {
+                case TYPE_INT:
+                    ((int[]) newColumn)[newRows[row]] = ((int[]) column)[row];
+                    break;
+                case TYPE_DOUBLE:
+                    ((double[]) newColumn)[newRows[row]] = ((double[]) column)[row];
+                    break;
+                case TYPE_BOOLEAN:
+                    ((boolean[]) newColumn)[newRows[row]] = ((boolean[]) column)[row];
+                    break;
+                default:
+                    ((Object[]) newColumn)[newRows[row]] = ((Object[]) column)[row];
+            }
+        }
+        return newColumn;
+    }
+
+    private static Object newColumn(int type, int capacity) {
+        switch (type) {
+            case TYPE_INT:
+                return new int[capacity];
+            case TYPE_DOUBLE:
+                return new double[capacity];
+            case TYPE_BOOLEAN:
+                return new boolean[capacity];
+            default:
+                return new Object[capacity];
+        }
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+}
@@ -3,6 +3,7 @@ package be.florien.joinorm.architecture;
 
 import android.database.Cursor;
 
+import java.lang.reflect.Field;
 import java.util.List;
 
 /**
@@ -21,6 +22,7 @@ public abstract class DBData<T> {
     protected T currentObject;
     boolean isComplete;
     protected FieldTypeEnum fieldTypeEnum = null;
+    Field modelField = null;
 
     /**
      * Return the name of this field or table. In case of a DBTable, the dataName could be an alias.
@@ -4,7 +4,7 @@ package be.florien.joinorm.architecture;
 import java.util.ArrayList;
 import java.util.List;
 
-public abstract class DBPrimitiveField<T> extends DBData<T> {
+public abstract class DBPrimitiveField<T> extends DBData<T> implements Cloneable {
 
     public DBPrimitiveField(String fieldName) {
         dataName = fieldName;
@@ -17,4 +17,21 @@ public abstract class DBPrimitiveField<T> extends DBData<T> {
         return projection;
     }
 
+    /**
+     * Create a new field selecting the same column, without any parsed value. The default implementation is a shallow clone, sharing the
+     * configuration of this field; override this method if the implementation class holds other parsing state.
+     *
+     * @return A copy of this field
+     */
+    @SuppressWarnings("unchecked")
+    protected DBPrimitiveField<T> copy() {
+        try {
+            DBPrimitiveField<T> copy = (DBPrimitiveField<T>) clone();
+            copy.resetCurrentParsing();
+            return copy;
+        } catch (CloneNotSupportedException ex) {
+            throw new DBArchitectureException("Could not copy the field " + dataName, ex);
+        }
+    }
+
 }
@@ -0,0 +1,388 @@
+package be.florien.joinorm.architecture;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Immutable and thread-safe query compiled from a configured {@link DBTable} by {@link DBTable#compile()}. The sql is built once, and each
+ * execution parses the result with its own copy of the table definition, so one DBQuery can be kept and executed by several threads at the
+ * same time.
+ *
+ * @param <T> model object representing the queried table
+ */
+public final class DBQuery<T> {
+
+    /*
+     * FIELDS
+     */
+
+    private final DBTable<T> definition;
+    private final String sql;
+    private final String key;
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    /**
+     * Constructs a new DBQuery. The definition given must not be modified or parsed afterward.
+     *
+     * @param definition The table definition, copied from the configured DBTable
+     */
+    DBQuery(DBTable<T> definition) {
+        this.definition = definition;
+        sql = definition.buildQuery();
+        key = buildKey();
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Return the sql query executed by this DBQuery
+     *
+     * @return The sql query
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Parse and return the complete list of object corresponding to this query in the SQLite database provided in the SQLiteOpenHelper
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @return The list of results
+     */
+    public List<T> getResult(SQLiteOpenHelper openHelper) {
+        return newParseContext().getResult(openHelper, sql);
+    }
+
+    /**
+     * Query the database and give each object to the visitor, as {@link DBTable#forEach(SQLiteOpenHelper, RowVisitor)} does.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param visitor    The visitor receiving each object
+     */
+    public void forEach(SQLiteOpenHelper openHelper, RowVisitor<T> visitor) {
+        newParseContext().forEach(openHelper, visitor, sql);
+    }
+
+    /**
+     * Parse and return the complete list of object corresponding to this query, reading the rows from SQLite on a separate thread while
+     * they are parsed. The rows are copied by batches of batchSize, and at most batchCount batches are read in advance.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param batchSize  The number of rows in each batch
+     * @param batchCount The number of batches read in advance
+     * @return The list of results
+     */
+    public List<T> getResultPipelined(SQLiteOpenHelper openHelper, int batchSize, int batchCount) {
+        DBTable<T> parseContext = newParseContext();
+        parseContext.setPipelining(batchSize, batchCount);
+        return parseContext.getResult(openHelper, sql);
+    }
+
+    /**
+     * Query the database and give each object to the visitor, reading the rows from SQLite on a separate thread while they are parsed, as
+     * {@link #getResultPipelined(SQLiteOpenHelper, int, int)} does.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param batchSize  The number of rows in each batch
+     * @param batchCount The number of batches read in advance
+     * @param visitor    The visitor receiving each object
+     */
+    public void forEachPipelined(SQLiteOpenHelper openHelper, int batchSize, int batchCount, RowVisitor<T> visitor) {
+        DBTable<T> parseContext = newParseContext();
+        parseContext.setPipelining(batchSize, batchCount);
+        parseContext.forEach(openHelper, visitor, sql);
+    }
+
+    /**
+     * Parse and return the complete list of object corresponding to this query, splitting the root table into rangeCount ranges of ids
+     * which are queried and parsed in parallel by the pool. The list is in the same order as the one returned by
+     * {@link #getResult(SQLiteOpenHelper)}. The queries only run concurrently if the database has write-ahead logging enabled, otherwise
+     * SQLite serializes them on its single connection. The root table must have a single id column and no column to order by added by
+     * {@link DBTable#addOrderBy(String, boolean)}, and must not be loaded as a tree, or the query is not split. ForkJoinPool is only
+     * available from Android API level 21.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param pool       The pool running the queries of each range
+     * @param rangeCount The number of ranges to split the root table into
+     * @return The list of results
+     */
+    public List<T> getResultInParallel(SQLiteOpenHelper openHelper, ForkJoinPool pool, int rangeCount) {
+        if (definition.getId().size() != 1 || definition.hasOrderByColumns() || definition.isTree()) {
+            return getResult(openHelper);
+        }
+        long[] bounds = getIdBounds(openHelper);
+        if (bounds == null) {
+            return new ArrayList<>();
+        }
+        return pool.invoke(new RangeTask(openHelper, null, bounds[0], bounds[1] + 1, Math.max(1, rangeCount)));
+    }
+
+    /**
+     * Query the database and give each object to the visitor, splitting the root table into rangeCount ranges of ids which are queried and
+     * parsed in parallel by the pool. The visitor is never called by two threads at the same time, but the objects are received in no
+     * particular order. As for {@link #forEach(SQLiteOpenHelper, RowVisitor)}, the objects are only valid during the call to the visitor.
+     * The root table must have a single id column and no column to order by, or the query is not split. ForkJoinPool is only available
+     * from Android API level 21.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param pool       The pool running the queries of each range
+     * @param rangeCount The number of ranges to split the root table into
+     * @param visitor    The visitor receiving each object
+     */
+    public void forEachInParallel(SQLiteOpenHelper openHelper, ForkJoinPool pool, int rangeCount, final RowVisitor<T> visitor) {
+        if (definition.getId().size() != 1 || definition.hasOrderByColumns() || definition.isTree()) {
+            forEach(openHelper, visitor);
+            return;
+        }
+        long[] bounds = getIdBounds(openHelper);
+        if (bounds == null) {
+            return;
+        }
+        RowVisitor<T> synchronizedVisitor = new RowVisitor<T>() {
+            @Override
+            public void visit(T object) {
+                synchronized (visitor) {
+                    visitor.visit(object);
+                }
+            }
+        };
+        pool.invoke(new RangeTask(openHelper, synchronizedVisitor, bounds[0], bounds[1] + 1, Math.max(1, rangeCount)));
+    }
+
+    /**
+     * Query the database and store the result in a {@link ColumnarTable}, as {@link DBTable#getColumnarResult(SQLiteOpenHelper)} does.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @return The result
+     */
+    public ColumnarTable getColumnarResult(SQLiteOpenHelper openHelper) {
+        return newParseContext().getColumnarResult(openHelper, sql);
+    }
+
+    /**
+     * Create a {@link LiveQuery} executing this query each time one of its tables changes. It must be started to query and listen.
+     *
+     * @param openHelper     The helper providing access to the database to query and listen to
+     * @param observer       The observer receiving each result
+     * @param debounceMillis The window, in milliseconds, during which the changes following a first one are coalesced
+     * @return The LiveQuery, not started
+     */
+    public LiveQuery<T> observe(SQLiteOpenHelper openHelper, ResultObserver<T> observer, long debounceMillis) {
+        return new LiveQuery<>(this, openHelper, observer, debounceMillis);
+    }
+
+    /**
+     * Create a {@link LiveQuery} refreshing only the objects whose ID changed, when the changes notified concern the queried table with
+     * known IDs, and giving each {@link ChangeSet} to the observer. The ID of the queried table must be a single column, and the results
+     * must be ordered by it, without column to order by added by {@link DBTable#addOrderBy(String, boolean)}.
+     *
+     * @param openHelper     The helper providing access to the database to query and listen to
+     * @param observer       The observer receiving each change set
+     * @param debounceMillis The window, in milliseconds, during which the changes following a first one are coalesced
+     * @return The LiveQuery, not started
+     */
+    public LiveQuery<T> observeChanges(SQLiteOpenHelper openHelper, ChangeSetObserver<T> observer, long debounceMillis) {
+        if (definition.getId().size() != 1) {
+            throw new DBArchitectureException("Incremental refresh needs a single column ID for " + definition.getTableName(), null);
+        }
+        if (definition.hasOrderByColumns()) {
+            throw new DBArchitectureException("Incremental refresh needs results ordered by ID for " + definition.getTableName(), null);
+        }
+        if (definition.isTree()) {
+            throw new DBArchitectureException("Incremental refresh can't splice the objects of the tree of " + definition.getTableName(), null);
+        }
+        return new LiveQuery<>(this, openHelper, observer, debounceMillis);
+    }
+
+    /*
+     * PACKAGE METHODS
+     */
+
+    /**
+     * Parse and return the objects of this query whose ID is one of ids, in the order of the query
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param ids        The IDs of the objects to query
+     * @return The list of results
+     */
+    List<T> getResultForIds(SQLiteOpenHelper openHelper, Collection<Integer> ids) {
+        long[] idValues = new long[ids.size()];
+        int index = 0;
+        for (Integer id : ids) {
+            idValues[index++] = id;
+        }
+        DBTable<T> idsDefinition = definition.copyDefinition();
+        idsDefinition.addRestriction(new WhereStatement(definition.getId().get(0), idValues, true));
+        return idsDefinition.getResult(openHelper, idsDefinition.buildQuery());
+    }
+
+    /**
+     * Return the value of the ID of an object returned by this query
+     *
+     * @param object The object
+     * @return The value of its ID
+     */
+    int getIdValue(T object) {
+        return definition.getIdValue(object);
+    }
+
+    /**
+     * Return the name of the queried table, as in the database
+     *
+     * @return The name of the table
+     */
+    String getTableName() {
+        return definition.getTableName();
+    }
+
+    /**
+     * Return the key identifying the results of this query: two DBQuery with the same key return the same results.
+     *
+     * @return The key of this query
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Add the names of all the tables queried, joined or lazily loaded, as in the database. A table appearing several times in the tree is
+     * added each time.
+     *
+     * @param tableNames The collection of table names to populate
+     */
+    void collectTableNames(Collection<String> tableNames) {
+        definition.collectTableNames(tableNames);
+    }
+
+    /**
+     * Create independent copies of the objects returned by this query
+     *
+     * @param results The results of an execution of this query
+     * @return The copies
+     */
+    List<T> copyResult(List<T> results) {
+        return newParseContext().copyResult(results);
+    }
+
+    /**
+     * Create the DBTable which will hold the parsing state of one execution of this query, sharing the definition of this query
+     *
+     * @return A parse context of the table definition
+     */
+    DBTable<T> newParseContext() {
+        return definition.newParseContext();
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    /**
+     * Build the key of this query: its sql, followed by the values of its where statements when some are parameters or temporary tables
+     */
+    private String buildKey() {
+        List<String> whereArgs = new ArrayList<>();
+        Map<String, WhereStatement> tempTables = new LinkedHashMap<>();
+        definition.collectWhereArgs(whereArgs, tempTables);
+        StringBuilder keyBuilder = new StringBuilder(sql);
+        if (!whereArgs.isEmpty()) {
+            keyBuilder.append('\n').append(TextUtils.join(", ", whereArgs));
+        }
+        for (WhereStatement statement : tempTables.values()) {
+            keyBuilder.append('\n').append(statement.getValuesKey());
+        }
+        return keyBuilder.toString();
+    }
+
+    /**
+     * Return the lowest and highest id of the root table, which must have a single id column, or null if it's empty
+     */
+    private long[] getIdBounds(SQLiteOpenHelper openHelper) {
+        List<String> ids = definition.getId();
+        Cursor boundsCursor = openHelper.getReadableDatabase().rawQuery(
+                "SELECT MIN(" + ids.get(0) + "), MAX(" + ids.get(0) + ") FROM " + definition.getTableName(), null);
+        try {
+            if (!boundsCursor.moveToFirst() || boundsCursor.isNull(0)) {
+                return null;
+            }
+            return new long[]{boundsCursor.getLong(0), boundsCursor.getLong(1)};
+        } finally {
+            boundsCursor.close();
+        }
+    }
+
+    /**
+     * Create a copy of the definition restricted to the root ids from start, included, to end, excluded. The restriction is part of the
+     * where of the root table, so the preloading of the repeatable tables is restricted to the rows referenced by the range.
+     */
+    private DBTable<T> newRangeDefinition(long start, long end) {
+        String id = definition.getId().get(0);
+        DBTable<T> rangeDefinition = definition.copyDefinition();
+        rangeDefinition.addRestriction(new WhereStatement(id, String.valueOf(start), WhereCondition.MORE_EQUAL));
+        rangeDefinition.addRestriction(new WhereStatement(id, String.valueOf(end), WhereCondition.LESS));
+        return rangeDefinition;
+    }
+
+    /*
+     * INNER CLASSES
+     */
+
+    /**
+     * Task splitting its range of ids in two until it covers only one of the ranges asked, then querying and parsing it
+     */
+    private class RangeTask extends RecursiveTask<List<T>> {
+
+        private static final long serialVersionUID = 4254381736215794853L;
+
+        private final SQLiteOpenHelper openHelper;
+        private final RowVisitor<T> visitor;
+        private final long start;
+        private final long end;
+        private final int rangeCount;
+
+        RangeTask(SQLiteOpenHelper openHelper, RowVisitor<T> visitor, long start, long end, int rangeCount) {
+            this.openHelper = openHelper;
+            this.visitor = visitor;
+            this.start = start;
+            this.end = end;
+            this.rangeCount = rangeCount;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (rangeCount <= 1 || end - start <= 1) {
+                DBTable<T> rangeDefinition = newRangeDefinition(start, end);
+                if (visitor == null) {
+                    return rangeDefinition.getResult(openHelper, rangeDefinition.buildQuery());
+                }
+                rangeDefinition.forEach(openHelper, visitor, rangeDefinition.buildQuery());
+                return null;
+            }
+            int firstHalfCount = rangeCount / 2;
+            long middle = start + (long) ((end - start) * ((double) firstHalfCount / rangeCount));
+            RangeTask firstHalf = new RangeTask(openHelper, visitor, start, middle, firstHalfCount);
+            RangeTask secondHalf = new RangeTask(openHelper, visitor, middle, end, rangeCount - firstHalfCount);
+            secondHalf.fork();
+            List<T> results = firstHalf.compute();
+            List<T> secondResults = secondHalf.join();
+            if (results != null && secondResults != null) {
+                results.addAll(secondResults);
+            }
+            return results;
+        }
+    }
+}
@@ -3,8 +3,12 @@ package be.florien.joinorm.architecture;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -12,13 +16,22 @@ import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import be.florien.joinorm.primitivefield.BooleanField;
 import be.florien.joinorm.primitivefield.DoubleField;
 import be.florien.joinorm.primitivefield.IntField;
 import be.florien.joinorm.primitivefield.NullField;
 import be.florien.joinorm.primitivefield.StringField;
+import be.florien.joinorm.primitivefield.StringPool;
 
 /**
  * {@link be.florien.joinorm.architecture.DBData DBData} representing the requests concerning a table in the database. An id referring to
@@ -46,18 +59,18 @@ import be.florien.joinorm.primitivefield.StringField;
  * @param <T> model object representing the table, which will get the info from the database at the end of the parsing
  * @author Florien Flament
  */
-public abstract class DBTable<T> extends DBData<T> {
+public abstract class DBTable<T> extends DBData<T> implements Cloneable {
     //todo migrate methods "tableToExtract" into tableToExtract
     //todo only get the type of field one time
     //todo simplify repeatable and incorporate it into methods
     //TODO Precision and handling of joinTable ? (table_B that consist of table_A_id and table_C_id)
-    //todo when repeatable, dont query repeatable.id but the foreign key, and don't join the table
     //todo exception handling
     /*
      * CONSTANTS
      */
 
     private static final int QUERY_ALL_ITEMS = -20;
+    private static volatile IndexAdvisor indexAdvisor = null;
 
     /*
      * FIELDS
@@ -67,11 +80,15 @@ public abstract class DBTable<T> extends DBData<T> {
     private final List<DBPrimitiveField<?>> primitiveWrites = new ArrayList<>();
     private final List<String> tableNameWrites = new ArrayList<>();
     private final List<String> tableValueRefWrites = new ArrayList<>();
-    private final List<DBTable<?>> tableQueries = new ArrayList<>();
-    private final List<DBPrimitiveField<?>> primitiveQueries = new ArrayList<>();
+    private List<DBTable<?>> tableQueries = new ArrayList<>();
+    private List<DBPrimitiveField<?>> primitiveQueries = new ArrayList<>();
+    private List<LazyJoin> lazyJoins = new ArrayList<>();
     private final List<DbId> deleteIds = new ArrayList<>();
-    private final List<WhereStatement> wheres = new ArrayList<>();
-    private final List<DbId> repeatableIds = new ArrayList<>();
+    private List<WhereStatement> wheres = new ArrayList<>();
+    private List<WhereStatement> restrictions = new ArrayList<>();
+    private List<String> orderBys = new ArrayList<>();
+    private int limitPerParent = 0;
+    private List<DbId> repeatableIds = new ArrayList<>();
     private List<T> repeatableResults = new ArrayList<>();
     private T repeatableResult = null;
 
@@ -84,13 +101,34 @@ public abstract class DBTable<T> extends DBData<T> {
     private boolean willBeRedundant = false;
     private boolean isANewObject = true;
     private boolean isRepeatable = false;
+    private String repeatableRestriction = null;
+    private List<String> repeatableRestrictionArgs = new ArrayList<>();
+    private Map<String, WhereStatement> repeatableRestrictionTempTables = new LinkedHashMap<>();
+    private String[] joinReferences = null;
+    private boolean isReferenceJoined = false;
+    private boolean isLeftJoined = false;
+    private boolean isWherePushedDown = false;
 
     private boolean isSubTableFinished;
     private T objectToWrite;
-    private DbId ids = new DbId();
+    private int[] currentIds = new int[0];
+    private boolean hasCurrentIds = false;
     private List<T> results = new ArrayList<>();
     private Cursor cursor = null;
+    private String cursorSql = null;
     private boolean repeatableInitiated = false;
+    private boolean isReusingObjects = false;
+    private List<T> recycledObjects = new ArrayList<>();
+    private int recycledObjectPosition;
+    private List<List<T>> recycledLists = new ArrayList<>();
+    private int recycledListPosition;
+    private int pipelineBatchSize = 0;
+    private int pipelineBatchCount = 0;
+    private String groupColumn = null;
+    private String treeParentColumn = null;
+    private String treeChildrenField = null;
+    private int treeMaxDepth;
+    private List<String> groupKeys = new ArrayList<>();
 
     /*
      * CONSTRUCTOR
@@ -142,8 +180,15 @@ public abstract class DBTable<T> extends DBData<T> {
         for (DBData<?> fieldToSelect : primitiveQueries) {
             projection.addAll(fieldToSelect.buildSelect(dataName));
         }
+        for (LazyJoin lazyJoin : lazyJoins) {
+            projection.add(dataName + "." + lazyJoin.getParentKeyColumn(getId()));
+        }
         for (DBTable<?> fieldToSelect : tableQueries) {
-            if (fieldToSelect.isRepeatable) {
+            if (isJoinEliminated(fieldToSelect)) {
+                for (String reference : fieldToSelect.joinReferences) {
+                    projection.add(dataName + "." + reference);
+                }
+            } else if (fieldToSelect.isRepeatable) {
                 projection.addAll(fieldToSelect.getCompleteId());
             } else {
                 projection.addAll(fieldToSelect.buildSelect(dataName));
@@ -163,13 +208,13 @@ public abstract class DBTable<T> extends DBData<T> {
             int currentColumn = column;
 
             if (isANewObject) {
-                DbId id = new DbId();
+                DbId id = isRepeatable ? new DbId() : null;
                 for (DBPrimitiveField<?> primitiveToExtract : primitiveQueries) {
                     primitiveToExtract.extractRowValue(cursor, currentColumn);
                     try {
-                        Field field = getFieldToSet(primitiveToExtract);
+                        Field field = getCachedFieldToSet(primitiveToExtract);
                         field.set(currentObject, primitiveToExtract.getValue());
-                        if (id.getIds().size() < idColumnCount) {
+                        if (id != null && id.getIds().size() < idColumnCount) {
                             id.getIds().add(String.valueOf(primitiveToExtract.getValue()));
                         }
                     } catch (NoSuchFieldException exception) {
@@ -177,10 +222,18 @@ public abstract class DBTable<T> extends DBData<T> {
                     }
                     currentColumn++;
                 }
-                repeatableIds.add(id);
+                if (id != null) {
+                    repeatableIds.add(id);
+                }
+                for (LazyJoin lazyJoin : lazyJoins) {
+                    Field field = getCachedFieldToSet(lazyJoin.getTable());
+                    String key = cursor.isNull(currentColumn) ? null : cursor.getString(currentColumn);
+                    field.set(currentObject, lazyJoin.newPlaceholder(key, List.class.isAssignableFrom(field.getType())));
+                    currentColumn++;
+                }
                 isANewObject = false;
             } else {
-                currentColumn += primitiveQueries.size();
+                currentColumn += primitiveQueries.size() + lazyJoins.size();
             }
 
             for (DBTable<?> tableToExtract : tableQueries) {
@@ -210,7 +263,7 @@ public abstract class DBTable<T> extends DBData<T> {
                             if (getFieldType(tableToExtract) == FieldTypeEnum.LIST) {
                                 tableToExtract.addResultToList();
                             } else {
-                                Field field = getFieldToSet(tableToExtract);
+                                Field field = getCachedFieldToSet(tableToExtract);
                                 field.set(currentObject, tableToExtract.getValue());
                             }
                             tableToExtract.resetCurrentParsing();
@@ -256,11 +309,11 @@ public abstract class DBTable<T> extends DBData<T> {
     protected void resetCurrentParsing() {
         super.resetCurrentParsing();
         try {
-            currentObject = modelObjectClass.newInstance();
+            currentObject = obtainModelObject();
             for (DBData<?> fieldToReset : tableQueries) {
                 fieldToReset.resetCurrentParsing();
             }
-            ids = new DbId();
+            hasCurrentIds = false;
             isANewObject = true;
             isSubTableFinished = false;
         } catch (Exception e) {
@@ -289,6 +342,45 @@ public abstract class DBTable<T> extends DBData<T> {
         return this;
     }
 
+    /**
+     * Add a statement which must always be true for the rows of this table, whatever the OR statements added by
+     * {@link #addWhere(WhereStatement)}: the where statements are kept between parenthesis, and the restrictions are added with AND.
+     *
+     * @param statement The restriction
+     */
+    void addRestriction(WhereStatement statement) {
+        restrictions.add(statement);
+    }
+
+    /**
+     * Add a column to order the rows of this table by. The rows are ordered inside the object containing them: the columns of the queried
+     * table order the results, those of a list order the list. The columns of a table joined as a single object order the object containing
+     * it. The columns are used in the order they are added, before the ID, which keeps the rows of one object together.
+     *
+     * @param columnName  The name of the column, without the table's name
+     * @param isAscending Whether the rows are in ascending or descending order of the column
+     * @return this DBTable for chaining commands
+     */
+    @SuppressWarnings("unused")
+    public DBTable<T> addOrderBy(String columnName, boolean isAscending) {
+        orderBys.add(columnName + (isAscending ? " ASC" : " DESC"));
+        return this;
+    }
+
+    /**
+     * Keep only the first rows of this table for each object containing it, in the order given by {@link #addOrderBy(String, boolean)}
+     * then by ID. The limit is applied by SQLite in the ON clause of the join, so the other rows are never read. It only applies to a
+     * table joined as a list, by a reference to the ID of the object containing it.
+     *
+     * @param limit The number of rows kept for each object containing this table, or 0 to keep them all
+     * @return this DBTable for chaining commands
+     */
+    @SuppressWarnings("unused")
+    public DBTable<T> setLimitPerParent(int limit) {
+        limitPerParent = limit;
+        return this;
+    }
+
     /**
      * Parse and return the complete list of object corresponding to this DBTable in the SQLite database provided in the SQLiteOpenHelper
      *
@@ -326,32 +418,421 @@ public abstract class DBTable<T> extends DBData<T> {
         if (openHelper == null) {
             throw new NullPointerException("Please provide an initialized SQLiteOpenHelper");
         }
+        if (isTree()) {
+            return getResult(openHelper, buildQuery());
+        }
 
         if (!isReturningAllList) {
             resetList();//todo completeResult AND lastResult ?
         }
 
+        long startTime = System.nanoTime();
         if (cursor == null) {
             if (!repeatableInitiated) {
                 initRepeatable(openHelper);
             }
-            SQLiteQueryBuilder query = new SQLiteQueryBuilder();
-            query.setTables(getJoinComplete());
-            cursor = query.query(openHelper.getReadableDatabase(), getSelect(), getWhere(), null, null, null, getOrderBy());
-            Log.d("PKMN", query.buildQuery(getSelect(), getWhere(), null, null, getOrderBy(), null));
+            initLazyLoaders(openHelper);
+            cursorSql = buildQuery();
+            cursor = query(openHelper, cursorSql);
+        }
+
+        List<T> result = getResult(cursor, nbItem);
+        recordExecution(openHelper, cursorSql, startTime);
+        return result;
+    }
+
+    /**
+     * Query this DBTable in the SQLite database provided in the SQLiteOpenHelper and give each object to the visitor as soon as it is
+     * complete, without keeping it in a list. One model object per table level is reused between the root objects instead of creating a
+     * new one each time, so the objects given to the visitor are only valid until {@link RowVisitor#visit(Object)} returns.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param visitor    The visitor receiving each object
+     */
+    @SuppressWarnings("unused")
+    public void forEach(SQLiteOpenHelper openHelper, RowVisitor<T> visitor) {
+        forEach(openHelper, visitor, buildQuery());
+    }
+
+    /**
+     * Parse and return the complete list of object for each of the DBTable given, all queried inside one transaction on the same connection
+     * so that they read a consistent state of the database. The DBTables themselves are not modified: each one is executed with a copy of
+     * its definition, as {@link #compile()} does.
+     * <p>
+     * Android only opens transactions in IMMEDIATE mode (a deferred BEGIN is turned into an exclusive one by SQLiteDatabase), so the
+     * reserved lock is held for the whole batch: the readers aren't blocked in WAL mode, but the writers of other connections wait until
+     * all the tables are parsed. A database opened read-only can't take that lock, so its tables are queried one after the other without
+     * transaction.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param tables     The DBTables to query
+     * @return The results, retrieved with each of the DBTables given
+     */
+    @SuppressWarnings("unused")
+    public static BatchResults getResults(SQLiteOpenHelper openHelper, DBTable<?>... tables) {
+        if (openHelper == null) {
+            throw new NullPointerException("Please provide an initialized SQLiteOpenHelper");
+        }
+
+        BatchResults results = new BatchResults();
+        SQLiteDatabase database = openHelper.getReadableDatabase();
+        if (database.isReadOnly()) {
+            addResults(openHelper, results, tables);
+            return results;
+        }
+        database.beginTransactionNonExclusive();
+        try {
+            addResults(openHelper, results, tables);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return results;
+    }
+
+    private static void addResults(SQLiteOpenHelper openHelper, BatchResults results, DBTable<?>... tables) {
+        for (DBTable<?> table : tables) {
+            table.addResult(openHelper, results);
+        }
+    }
+
+    private void addResult(SQLiteOpenHelper openHelper, BatchResults results) {
+        DBTable<T> parseContext = newParseContext();
+        results.put(this, parseContext.getResult(openHelper, parseContext.buildQuery()));
+    }
+
+    /**
+     * Compile the current configuration of this DBTable and all its inner tables into an immutable {@link DBQuery}. Later changes made to
+     * this DBTable are not reflected in the returned query.
+     *
+     * @return The compiled query
+     */
+    @SuppressWarnings("unused")
+    public DBQuery<T> compile() {
+        return new DBQuery<>(copyDefinition());
+    }
+
+    /**
+     * Parse and return the complete list of object for the sql query given, which must have been built by {@link #buildQuery()} on this
+     * DBTable or a copy of its definition.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param sql        The sql query
+     * @return The list of results
+     */
+    List<T> getResult(SQLiteOpenHelper openHelper, String sql) {
+        if (openHelper == null) {
+            throw new NullPointerException("Please provide an initialized SQLiteOpenHelper");
+        }
+
+        resetList();
+        groupKeys.clear();
+        if (!repeatableInitiated) {
+            initRepeatable(openHelper);
+        }
+        initLazyLoaders(openHelper);
+        long startTime = System.nanoTime();
+        Cursor resultCursor = query(openHelper, sql);
+        try {
+            List<T> result = getResult(resultCursor, QUERY_ALL_ITEMS);
+            if (isTree()) {
+                result = assembleTree(result);
+            }
+            recordExecution(openHelper, sql, startTime);
+            return result;
+        } finally {
+            resultCursor.close();
+        }
+    }
+
+    /**
+     * Query the database and store the result in a {@link ColumnarTable} instead of model objects: each selected column becomes a
+     * primitive array, and each inner table a ColumnarTable whose rows are grouped by parent row. Lazy and repeatable inner tables are not
+     * supported.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @return The result, readable through the generated views of the model
+     */
+    @SuppressWarnings("unused")
+    public ColumnarTable getColumnarResult(SQLiteOpenHelper openHelper) {
+        return getColumnarResult(openHelper, buildQuery());
+    }
+
+    /**
+     * Same as {@link #getColumnarResult(SQLiteOpenHelper)} for the sql query given, which must have been built by {@link #buildQuery()} on
+     * this DBTable or a copy of its definition.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param sql        The sql query
+     * @return The result
+     */
+    ColumnarTable getColumnarResult(SQLiteOpenHelper openHelper, String sql) {
+        if (openHelper == null) {
+            throw new NullPointerException("Please provide an initialized SQLiteOpenHelper");
+        }
+        if (isTree()) {
+            throw new DBArchitectureException("A tree can't be loaded as a columnar result in " + dataName, null);
+        }
+
+        ColumnarParser parser = new ColumnarParser(this, 0, true);
+        long startTime = System.nanoTime();
+        Cursor resultCursor = query(openHelper, sql);
+        try {
+            ColumnarTable result = parser.parse(resultCursor);
+            recordExecution(openHelper, sql, startTime);
+            return result;
+        } finally {
+            resultCursor.close();
+        }
+    }
+
+    /**
+     * Same as {@link #forEach(SQLiteOpenHelper, RowVisitor)} for the sql query given, which must have been built by {@link #buildQuery()}
+     * on this DBTable or a copy of its definition.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param visitor    The visitor receiving each object
+     * @param sql        The sql query
+     */
+    void forEach(SQLiteOpenHelper openHelper, RowVisitor<T> visitor, String sql) {
+        if (openHelper == null) {
+            throw new NullPointerException("Please provide an initialized SQLiteOpenHelper");
+        }
+        if (isTree()) {
+            throw new DBArchitectureException("A tree can't be visited object by object in " + dataName, null);
+        }
+
+        if (!repeatableInitiated) {
+            initRepeatable(openHelper);
+        }
+        initLazyLoaders(openHelper);
+        long startTime = System.nanoTime();
+        Cursor visitedCursor = query(openHelper, sql);
+        setReusingObjects(true);
+        try {
+            resetCurrentParsing();
+            parseRows(visitedCursor, QUERY_ALL_ITEMS, visitor);
+            recordExecution(openHelper, sql, startTime);
+        } finally {
+            visitedCursor.close();
+            setReusingObjects(false);
+            resetCurrentParsing();
+        }
+    }
+
+    /**
+     * Execute the sql query, binding the parameters of the where statements. If some of them have their values in a temporary table, the
+     * tables live on the primary connection, so they are filled, the query executed and all its rows copied in memory inside one
+     * transaction, before the tables are emptied. A cursor window filled later on another connection would read empty tables. Android
+     * only opens IMMEDIATE transactions, which holds the reserved lock until the rows are copied: the readers aren't blocked in WAL mode,
+     * but the writers of other connections wait.
+     */
+    private Cursor query(SQLiteOpenHelper openHelper, String sql) {
+        Log.d("PKMN", sql);
+        List<String> whereArgs = new ArrayList<>();
+        Map<String, WhereStatement> tempTables = new LinkedHashMap<>();
+        collectWhereArgs(whereArgs, tempTables);
+        String[] argsArray = whereArgs.isEmpty() ? null : whereArgs.toArray(new String[whereArgs.size()]);
+        Cursor queryCursor;
+        try {
+            queryCursor = query(openHelper, sql, argsArray, tempTables);
+        } catch (SQLiteException exception) {
+            if (isTree()) {
+                throw new DBArchitectureException("Unable to query the tree of " + tableName
+                        + ", WITH RECURSIVE needs SQLite 3.8.3 (Android 5.0, API level 21)", exception);
+            }
+            throw exception;
+        }
+        if (pipelineBatchSize > 0) {
+            return new PipelinedCursor(queryCursor, pipelineBatchSize, pipelineBatchCount);
+        }
+        return queryCursor;
+    }
+
+    private Cursor query(SQLiteOpenHelper openHelper, String sql, String[] argsArray, Map<String, WhereStatement> tempTables) {
+        if (tempTables.isEmpty()) {
+            return openHelper.getReadableDatabase().rawQuery(sql, argsArray);
+        }
+        SQLiteDatabase database = openHelper.getWritableDatabase();
+        database.beginTransactionNonExclusive();
+        try {
+            for (Map.Entry<String, WhereStatement> tempTable : tempTables.entrySet()) {
+                tempTable.getValue().fillTempTable(database, tempTable.getKey());
+            }
+            Cursor queryCursor = copyRows(database.rawQuery(sql, argsArray));
+            database.setTransactionSuccessful();
+            return queryCursor;
+        } finally {
+            try {
+                for (String tempTableName : tempTables.keySet()) {
+                    WhereStatement.clearTempTable(database, tempTableName);
+                }
+            } finally {
+                database.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * Copy all the rows of the cursor in a cursor held in memory, and close it
+     */
+    private static Cursor copyRows(Cursor source) {
+        try {
+            MatrixCursor copy = new MatrixCursor(source.getColumnNames(), source.getCount());
+            Object[] row = new Object[source.getColumnCount()];
+            while (source.moveToNext()) {
+                for (int i = 0; i < row.length; i++) {
+                    switch (source.getType(i)) {
+                        case Cursor.FIELD_TYPE_NULL:
+                            row[i] = null;
+                            break;
+                        case Cursor.FIELD_TYPE_INTEGER:
+                            row[i] = source.getLong(i);
+                            break;
+                        case Cursor.FIELD_TYPE_FLOAT:
+                            row[i] = source.getDouble(i);
+                            break;
+                        case Cursor.FIELD_TYPE_BLOB:
+                            row[i] = source.getBlob(i);
+                            break;
+                        default:
+                            row[i] = source.getString(i);
+                    }
+                }
+                copy.addRow(row);
+            }
+            return copy;
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Set the {@link IndexAdvisor} recording the queries executed by all the DBTable from now on
+     *
+     * @param advisor The advisor, or null to stop recording
+     */
+    @SuppressWarnings("unused")
+    public static void setIndexAdvisor(IndexAdvisor advisor) {
+        indexAdvisor = advisor;
+    }
+
+    private void recordExecution(SQLiteOpenHelper openHelper, String sql, long startTime) {
+        IndexAdvisor advisor = indexAdvisor;
+        if (advisor != null) {
+            long time = System.nanoTime() - startTime;
+            List<IndexSuggestion> candidates = new ArrayList<>();
+            List<IndexSuggestion> orderCandidates = new ArrayList<>();
+            Map<String, String> tableNames = new HashMap<>();
+            collectIndexCandidates(candidates, orderCandidates, tableNames);
+            advisor.record(openHelper.getReadableDatabase(), sql, candidates, orderCandidates, tableNames, time);
+        }
+    }
+
+    /**
+     * Add the indexes which could be used by the query of this table and its inner tables: one for each column of the where statements,
+     * and one for each join on the referencing columns, followed by the ID of the joined table when it's the one referencing this table.
+     * The columns given to {@link #addOrderBy(String, boolean)}, followed by the ID, are added apart as they only help a sorting query.
+     *
+     * @param candidates      The list of indexes to populate
+     * @param orderCandidates The list of indexes on the ordering columns to populate
+     * @param tableNames      The map of table names by alias to populate
+     */
+    private void collectIndexCandidates(List<IndexSuggestion> candidates, List<IndexSuggestion> orderCandidates, Map<String, String> tableNames) {
+        tableNames.put(dataName, tableName);
+        for (WhereStatement statement : wheres) {
+            candidates.add(new IndexSuggestion(tableName, Collections.singletonList(statement.getColumnName())));
+        }
+        for (WhereStatement statement : restrictions) {
+            candidates.add(new IndexSuggestion(tableName, Collections.singletonList(statement.getColumnName())));
+        }
+        if (!orderBys.isEmpty()) {
+            List<String> columns = new ArrayList<>();
+            for (String orderBy : orderBys) {
+                columns.add(orderBy.substring(0, orderBy.lastIndexOf(' ')));
+            }
+            columns.addAll(getId());
+            orderCandidates.add(new IndexSuggestion(tableName, columns));
+        }
+        for (DBTable<?> table : tableQueries) {
+            if (isJoinEliminated(table)) {
+                continue;
+            }
+            resolveJoin(table);
+            if (table.joinReferences != null && table.isReferenceJoined) {
+                candidates.add(new IndexSuggestion(tableName, Arrays.asList(table.joinReferences)));
+            } else if (table.joinReferences != null) {
+                List<String> columns = new ArrayList<>(Arrays.asList(table.joinReferences));
+                columns.addAll(table.getId());
+                candidates.add(new IndexSuggestion(table.tableName, columns));
+            }
+            table.collectIndexCandidates(candidates, orderCandidates, tableNames);
         }
+    }
 
-        return getResult(cursor, nbItem);
+    /**
+     * Make the next executions of {@link #getResult(SQLiteOpenHelper, String)} and {@link #forEach(SQLiteOpenHelper, RowVisitor, String)}
+     * read the rows on a separate thread through a {@link PipelinedCursor}.
+     *
+     * @param batchSize  The number of rows in each batch
+     * @param batchCount The number of batches read in advance
+     */
+    void setPipelining(int batchSize, int batchCount) {
+        pipelineBatchSize = batchSize;
+        pipelineBatchCount = batchCount;
+    }
+
+    private void initLazyLoaders(SQLiteOpenHelper openHelper) {
+        for (LazyJoin lazyJoin : lazyJoins) {
+            lazyJoin.initLoader(openHelper);
+        }
+        for (DBTable<?> table : tableQueries) {
+            table.initLazyLoaders(openHelper);
+        }
     }
 
     private void initRepeatable(SQLiteOpenHelper openHelper) {
         repeatableInitiated = true;
+        preloadRepeatable(openHelper, this);
+    }
+
+    /**
+     * Query and parse all the repeatable tables among the inner tables of this one. Each repeatable table is restricted to the rows
+     * referenced by the query of the root table, if its ID is a single column.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param root       The table whose query is about to be executed
+     */
+    private void preloadRepeatable(SQLiteOpenHelper openHelper, DBTable<?> root) {
         for (DBTable<?> table : tableQueries) {
-            table.initRepeatable(openHelper);
+            if (table.isRepeatable) {
+                table.repeatableRestriction = getRepeatableRestriction(table, root);
+                table.getResult(openHelper);
+            } else {
+                table.preloadRepeatable(openHelper, root);
+            }
         }
-        if (isRepeatable) {
-            getResult(openHelper);
+    }
+
+    /**
+     * Construct and return the condition restricting the preloading of repeatableTable to the IDs selected for it by the query of root,
+     * in the form "REPEATABLE_TABLE.ID IN (SELECT KEY FROM ROOT_JOINS WHERE ROOT_WHERE)". The values to bind to the parameters of the
+     * root query and its temporary tables are kept by repeatableTable, which adds them after its own in
+     * {@link #collectWhereArgs(List, Map)}.
+     *
+     * @return The condition, or null if repeatableTable ID is not a single column
+     */
+    private String getRepeatableRestriction(DBTable<?> repeatableTable, DBTable<?> root) {
+        repeatableTable.repeatableRestrictionArgs = new ArrayList<>();
+        repeatableTable.repeatableRestrictionTempTables = new LinkedHashMap<>();
+        if (repeatableTable.getId().size() != 1) {
+            return null;
         }
+        root.collectWhereArgs(repeatableTable.repeatableRestrictionArgs, repeatableTable.repeatableRestrictionTempTables);
+        String key = isJoinEliminated(repeatableTable) ? dataName + "." + repeatableTable.joinReferences[0] : repeatableTable.getCompleteId().get(0);
+        String rootWhere = root.getQueryWhere();
+        return repeatableTable.getCompleteId().get(0) + WhereCondition.IN.getCondition()
+                + "(SELECT " + key + " FROM " + root.getJoinComplete() + (TextUtils.isEmpty(rootWhere) ? "" : " WHERE " + rootWhere) + ")";
     }
 
     /**
@@ -361,6 +842,7 @@ public abstract class DBTable<T> extends DBData<T> {
     public void resetQuery() {
         resetList();
         cursor = null;
+        cursorSql = null;
     }
 
     /**
@@ -381,18 +863,144 @@ public abstract class DBTable<T> extends DBData<T> {
      */
     @SuppressWarnings("unused")
     public void writeAll(SQLiteOpenHelper openHelper) {
+        Map<String, Set<Integer>> changedTables = new HashMap<>();
         openHelper.getWritableDatabase().beginTransaction();
         try {
             List<DBWrite> write = new ArrayList<>();
             getWrite(write, "");
             for (DBWrite toWrite : write) {
                 openHelper.getWritableDatabase().insert(toWrite.getTableName(), null, toWrite.getValue());
+                TableChangeNotifier.addChange(changedTables, toWrite.getTableName(), toWrite.getId());
             }
             openHelper.getWritableDatabase().setTransactionSuccessful();
         } finally {
             openHelper.getWritableDatabase().endTransaction();
             openHelper.close();
         }
+        TableChangeNotifier.notifyChanges(openHelper, changedTables);
+    }
+
+    /**
+     * Insert each object given by the iterator in this table, in transactions of chunkSize objects. The write lock is released between
+     * two chunks so that other connections can go on, and only one chunk is referenced at a time, so the iterator can read its objects
+     * lazily from any size of source. The columns written are the primitive fields selected on this table, inner tables are not written.
+     * If an insertion fails, the chunks already committed are kept and the exception is thrown.
+     *
+     * @param openHelper The helper providing access to the database to write
+     * @param objects    The iterator giving the objects to insert
+     * @param chunkSize  The number of objects inserted in each transaction, which must be positive
+     * @param listener   The listener receiving the progress after each chunk, or null
+     * @return The number of objects inserted
+     */
+    @SuppressWarnings("unused")
+    public int importAll(SQLiteOpenHelper openHelper, Iterator<T> objects, int chunkSize, ImportProgressListener listener) {
+        if (openHelper == null) {
+            throw new NullPointerException("Please provide an initialized SQLiteOpenHelper");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive, was " + chunkSize);
+        }
+        if (primitiveQueries.isEmpty()) {
+            throw new DBArchitectureException("No field is selected to import in " + tableName, null);
+        }
+
+        SQLiteDatabase database = openHelper.getWritableDatabase();
+        SQLiteStatement insert = database.compileStatement(getImportStatement());
+        boolean isIdKnown = getId().size() == 1;
+        int importedCount = 0;
+        try {
+            while (objects.hasNext()) {
+                long startTime = System.nanoTime();
+                Map<String, Set<Integer>> changedTables = new HashMap<>();
+                int chunkCount = 0;
+                database.beginTransaction();
+                try {
+                    while (chunkCount < chunkSize && objects.hasNext()) {
+                        T object = objects.next();
+                        bindImportValues(insert, object);
+                        insert.executeInsert();
+                        TableChangeNotifier.addChange(changedTables, tableName, isIdKnown ? getIdValue(object) : null);
+                        chunkCount++;
+                    }
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+                importedCount += chunkCount;
+                TableChangeNotifier.notifyChanges(openHelper, changedTables);
+                if (listener != null) {
+                    listener.onChunkImported(importedCount, chunkCount, System.nanoTime() - startTime);
+                }
+            }
+        } finally {
+            insert.close();
+        }
+        return importedCount;
+    }
+
+    /**
+     * Update the row of the object passed by write methods, setting only the columns given to the write methods. The ID columns must have
+     * been written, and are used to find the row instead of being set. The UPDATE statement is compiled for each call and closed before
+     * returning: its sql only depends on the columns written, so SQLite's prepared statement is reused from the cache of the connection.
+     * Inner tables are not updated, so writing one is refused.
+     *
+     * @param openHelper The helper providing access to the database to write
+     * @return The number of rows updated
+     */
+    @SuppressWarnings("unused")
+    public int updateAll(SQLiteOpenHelper openHelper) {
+        if (!tableNameWrites.isEmpty()) {
+            throw new DBArchitectureException("The inner tables written in " + tableName + " can't be updated, only its columns", null);
+        }
+        List<DBPrimitiveField<?>> setFields = new ArrayList<>();
+        List<DBPrimitiveField<?>> idFields = new ArrayList<>();
+        for (DBPrimitiveField<?> field : primitiveWrites) {
+            if (getId().contains(field.dataName)) {
+                idFields.add(field);
+            } else {
+                setFields.add(field);
+            }
+        }
+        if (idFields.size() != getId().size()) {
+            throw new DBArchitectureException("The ID of " + tableName + " must be written to update it", null);
+        }
+        if (setFields.isEmpty()) {
+            return 0;
+        }
+
+        List<String> columns = new ArrayList<>();
+        for (DBPrimitiveField<?> field : setFields) {
+            columns.add(field.dataName + " = ?");
+        }
+        List<String> idColumns = new ArrayList<>();
+        for (DBPrimitiveField<?> field : idFields) {
+            idColumns.add(field.dataName + " = ?");
+        }
+        String sql = "UPDATE " + tableName + " SET " + TextUtils.join(", ", columns) + " WHERE " + TextUtils.join(" AND ", idColumns);
+
+        SQLiteDatabase database = openHelper.getWritableDatabase();
+        Map<String, Set<Integer>> changedTables = new HashMap<>();
+        int updatedCount;
+        SQLiteStatement updateStatement = database.compileStatement(sql);
+        try {
+            int index = 1;
+            for (DBPrimitiveField<?> field : setFields) {
+                bindValue(updateStatement, index++, field instanceof NullField ? null : getFieldToSet(field).get(objectToWrite));
+            }
+            for (DBPrimitiveField<?> field : idFields) {
+                bindValue(updateStatement, index++, getFieldToSet(field).get(objectToWrite));
+            }
+            updatedCount = updateStatement.executeUpdateDelete();
+        } catch (NoSuchFieldException | IllegalAccessException exception) {
+            throw new DBArchitectureException("Exception caught during the update of table " + tableName, exception);
+        } finally {
+            updateStatement.close();
+        }
+        if (updatedCount > 0) {
+            TableChangeNotifier.addChange(changedTables, tableName, idFields.size() == 1 ? getIdValue(objectToWrite) : null);
+        }
+        TableChangeNotifier.notifyChanges(openHelper, changedTables);
+        return updatedCount;
     }
 
     /**
@@ -402,6 +1010,7 @@ public abstract class DBTable<T> extends DBData<T> {
      */
     @SuppressWarnings("unused")
     public void deleteAll(SQLiteOpenHelper openHelper) {
+        Map<String, Set<Integer>> changedTables = new HashMap<>();
         openHelper.getWritableDatabase().beginTransaction();
         try {
             List<DBDelete> deletes = getDelete();
@@ -414,12 +1023,14 @@ public abstract class DBTable<T> extends DBData<T> {
                     argsArray[i++] = integer;
                 }
                 openHelper.getWritableDatabase().delete(delete.getTableName(), delete.getWhereClause(), argsArray);
+                TableChangeNotifier.addChange(changedTables, delete.getTableName(), argsArray.length == 1 ? Integer.valueOf(argsArray[0]) : null);
             }
             openHelper.getWritableDatabase().setTransactionSuccessful();
         } finally {
             openHelper.getWritableDatabase().endTransaction();
             openHelper.close();
         }
+        TableChangeNotifier.notifyChanges(openHelper, changedTables);
     }
 
     /*
@@ -436,10 +1047,38 @@ public abstract class DBTable<T> extends DBData<T> {
      */
     protected String[] getSelect() {
         List<String> buildSelect = buildSelect("");
+        if (groupColumn != null) {
+            buildSelect.add(dataName + "." + groupColumn);
+        }
         String[] projection = new String[buildSelect.size()];
         return buildSelect.toArray(projection);
     }
 
+    /**
+     * Construct and return the complete sql query for this DBTable and all its inner tables. This method should be used uniquely if this
+     * DBTable is not a inner DBData.
+     *
+     * @return The sql query
+     */
+    protected String buildQuery() {
+        return SQLiteQueryBuilder.buildQueryString(false, getJoinComplete(), getSelect(), getQueryWhere(), null, null, getOrderBy(), null);
+    }
+
+    /**
+     * Return the where statement of the query of this table, including the restriction to the rows referenced by the parent query if this
+     * table is repeatable, or to the rows of the tree if it's loaded as a tree.
+     *
+     * @return the where statement
+     */
+    String getQueryWhere() {
+        String where = getWhere();
+        String restriction = isTree() ? getTreeRestriction() : repeatableRestriction;
+        if (restriction == null) {
+            return where;
+        }
+        return TextUtils.isEmpty(where) ? restriction : "(" + where + ") AND " + restriction;
+    }
+
     /**
      * Populate a list of DBWrite with the data asked for writing.
      *
@@ -472,13 +1111,53 @@ public abstract class DBTable<T> extends DBData<T> {
                     value.put(field.dataName, integer);
                 }
             }
-            writes.add(new DBWrite(dataName, value));
+            writes.add(new DBWrite(dataName, value, getId().size() == 1 ? value.getAsInteger(getId().get(0)) : null));
         } catch (Exception e) {
             e.printStackTrace();
         }
         return referenceId;
     }
 
+    /**
+     * Return the INSERT statement used by {@link #importAll(SQLiteOpenHelper, Iterator, int, ImportProgressListener) importAll}, with one
+     * parameter for each selected primitive field.
+     *
+     * @return The INSERT statement
+     */
+    private String getImportStatement() {
+        List<String> columns = new ArrayList<>();
+        List<String> parameters = new ArrayList<>();
+        for (DBPrimitiveField<?> field : primitiveQueries) {
+            columns.add(field.dataName);
+            parameters.add("?");
+        }
+        return "INSERT INTO " + tableName + " (" + TextUtils.join(", ", columns) + ") VALUES (" + TextUtils.join(", ", parameters) + ")";
+    }
+
+    private void bindImportValues(SQLiteStatement insert, T object) {
+        try {
+            for (int i = 0; i < primitiveQueries.size(); i++) {
+                bindValue(insert, i + 1, getCachedFieldToSet(primitiveQueries.get(i)).get(object));
+            }
+        } catch (NoSuchFieldException | IllegalAccessException exception) {
+            throw new DBArchitectureException("Exception caught during the import in table " + tableName, exception);
+        }
+    }
+
+    private static void bindValue(SQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Integer) {
+            statement.bindLong(index, (Integer) value);
+        } else if (value instanceof Double) {
+            statement.bindDouble(index, (Double) value);
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, (Boolean) value ? 1 : 0);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+
     /**
      * Create and construct a list of {@link be.florien.joinorm.architecture.DBDelete DBDelete}
      *
@@ -499,8 +1178,24 @@ public abstract class DBTable<T> extends DBData<T> {
      * @return the where statement
      */
     protected String getWhere() {
+        String where = isTree() ? "" : getOwnWhere();
+        String innerTablesWhere = getInnerTablesWhere();
+        if (!TextUtils.isEmpty(innerTablesWhere) && !TextUtils.isEmpty(where)) {
+            where += " AND ";
+        }
+        return where + innerTablesWhere;
+    }
+
+    /**
+     * Construct and return the where statement of this table only, between parenthesis. The restrictions follow the where statements,
+     * which are kept in their own parenthesis so that an OR statement can't escape them.
+     *
+     * @return the where statement, or an empty String if this table has none
+     */
+    private String getOwnWhere() {
         String where = "";
-        for (WhereStatement statement : wheres) {
+        for (int i = 0; i < wheres.size(); i++) {
+            WhereStatement statement = wheres.get(i);
             if (!TextUtils.isEmpty(where)) {
                 if (statement.isOr()) {
                     where += " OR ";
@@ -510,13 +1205,39 @@ public abstract class DBTable<T> extends DBData<T> {
             } else {
                 where += "(";
             }
-            where += dataName + "." + statement.getStatement();
+            where += dataName + "." + statement.getStatement(getTempTableName(statement, i));
         }
         if (!TextUtils.isEmpty(where)) {
             where += ")";
         }
+        for (int i = 0; i < restrictions.size(); i++) {
+            WhereStatement restriction = restrictions.get(i);
+            if (!TextUtils.isEmpty(where)) {
+                where += " AND ";
+            }
+            where += dataName + "." + restriction.getStatement(getTempTableName(restriction, wheres.size() + i));
+        }
+        if (!restrictions.isEmpty()) {
+            where = "(" + where + ")";
+        }
+        return where;
+    }
+
+    /**
+     * Construct and return the where statement of the inner tables which isn't already in the ON clause of their join
+     *
+     * @return the where statement
+     */
+    private String getInnerTablesWhere() {
+        String where = "";
         for (DBTable<?> field : tableQueries) {
-            String toAdd = field.getWhere();
+            resolveJoin(field);
+            String toAdd = field.isWherePushedDown ? "" : field.getOwnWhere();
+            String innerTablesWhere = field.getInnerTablesWhere();
+            if (!TextUtils.isEmpty(innerTablesWhere) && !TextUtils.isEmpty(toAdd)) {
+                toAdd += " AND ";
+            }
+            toAdd += innerTablesWhere;
             if (!TextUtils.isEmpty(toAdd) && !TextUtils.isEmpty(where)) {
                 where += " AND ";
             }
@@ -525,34 +1246,145 @@ public abstract class DBTable<T> extends DBData<T> {
         return where;
     }
 
+    /**
+     * Add the values to bind to the parameters of the query of this table, in the same order: first those of the where statements in the
+     * ON clauses of {@link #getJoinComplete()}, then those of {@link #getQueryWhere()}, ending with the ones of the query of the root
+     * table copied in the restriction of a repeatable table. The statements whose values are in a temporary table are added to tempTables,
+     * by the name of their table.
+     *
+     * @param whereArgs  The list of values to populate
+     * @param tempTables The map of statements to populate
+     */
+    void collectWhereArgs(List<String> whereArgs, Map<String, WhereStatement> tempTables) {
+        collectJoinArgs(whereArgs, tempTables);
+        if (isTree()) {
+            collectInnerTablesArgs(whereArgs, tempTables);
+            collectOwnArgs(whereArgs, tempTables);
+        } else {
+            collectOwnArgs(whereArgs, tempTables);
+            collectInnerTablesArgs(whereArgs, tempTables);
+            if (repeatableRestriction != null) {
+                whereArgs.addAll(repeatableRestrictionArgs);
+                tempTables.putAll(repeatableRestrictionTempTables);
+            }
+        }
+    }
+
+    private void collectJoinArgs(List<String> whereArgs, Map<String, WhereStatement> tempTables) {
+        for (DBTable<?> field : tableQueries) {
+            if (!isJoinEliminated(field)) {
+                resolveJoin(field);
+                if (field.isWherePushedDown) {
+                    field.collectOwnArgs(whereArgs, tempTables);
+                }
+                field.collectJoinArgs(whereArgs, tempTables);
+            }
+        }
+    }
+
+    private void collectOwnArgs(List<String> whereArgs, Map<String, WhereStatement> tempTables) {
+        List<WhereStatement> statements = new ArrayList<>(wheres);
+        statements.addAll(restrictions);
+        for (int i = 0; i < statements.size(); i++) {
+            WhereStatement statement = statements.get(i);
+            whereArgs.addAll(Arrays.asList(statement.getArgs()));
+            if (statement.isInTempTable()) {
+                tempTables.put(getTempTableName(statement, i), statement);
+            }
+        }
+    }
+
+    private void collectInnerTablesArgs(List<String> whereArgs, Map<String, WhereStatement> tempTables) {
+        for (DBTable<?> field : tableQueries) {
+            resolveJoin(field);
+            if (!field.isWherePushedDown) {
+                field.collectOwnArgs(whereArgs, tempTables);
+            }
+            field.collectInnerTablesArgs(whereArgs, tempTables);
+        }
+    }
+
+    /**
+     * Return the name of the temporary table of the where statement at the position given, the restrictions following the where
+     * statements. It only depends on the alias of this table and the position, so that the sql stays the same between the executions, and
+     * a statement copied in the restriction of a repeatable table keeps the table filled for the query of the root table.
+     */
+    private String getTempTableName(WhereStatement statement, int position) {
+        return statement.getTempTableName(dataName + "_" + position);
+    }
+
     /**
      * Return a list of fields'names from the database to order the query by.
      *
      * @return a list of fields'names
      */
     protected String getOrderBy() {
-        String orderBy = getOrderByForThis();
-        for (DBTable<?> fieldToSelect : tableQueries) {
-            orderBy += ", " + fieldToSelect.getOrderBy();
+        List<String> orderBy = new ArrayList<>();
+        addOrderByColumns(orderBy);
+        return TextUtils.join(", ", orderBy);
+    }
+
+    /**
+     * Check if the queried rows are ordered by other columns than the ID of this table
+     *
+     * @return true if columns were added by {@link #addOrderBy(String, boolean)} to this table or the tables joined as a single object
+     */
+    boolean hasOrderByColumns() {
+        List<String> orderBy = new ArrayList<>();
+        addLevelOrderByColumns(orderBy);
+        return !orderBy.isEmpty();
+    }
+
+    /**
+     * Add the columns needed by the parser to group the rows of each object: the columns given by the user for this level, this table's
+     * ID, then the columns of the inner tables.
+     */
+    private void addOrderByColumns(List<String> orderBy) {
+        addLevelOrderByColumns(orderBy);
+        orderBy.addAll(getCompleteId());
+        addInnerOrderByColumns(orderBy);
+    }
+
+    /**
+     * Add the columns given by the user for this table and for the tables joined to it as a single object, which only have one row for
+     * each row of this table.
+     */
+    private void addLevelOrderByColumns(List<String> orderBy) {
+        for (String column : orderBys) {
+            orderBy.add(dataName + "." + column);
+        }
+        for (DBTable<?> table : tableQueries) {
+            if (!isJoinEliminated(table) && isSingleRowJoin(table)) {
+                table.addLevelOrderByColumns(orderBy);
+            }
+        }
+    }
+
+    /**
+     * Add the columns of the inner tables. A table joined as a single object can't repeat the rows of this table, so only the tables
+     * below it are ordered. The tables whose join is eliminated aren't ordered, their reference being read for each row.
+     */
+    private void addInnerOrderByColumns(List<String> orderBy) {
+        for (DBTable<?> table : tableQueries) {
+            if (isJoinEliminated(table)) {
+                continue;
+            }
+            if (isSingleRowJoin(table)) {
+                table.addInnerOrderByColumns(orderBy);
+            } else {
+                table.addOrderByColumns(orderBy);
+            }
         }
-        return orderBy;
     }
 
     /**
-     * Return a column name in the form "TABLE_ALIAS.COLUMN_NAME".
-     *
-     * @return A column name in the form "TABLE_ALIAS.COLUMN_NAME"
+     * Check if innerTable is joined on its complete ID, referenced by this table, and thus has at most one row for each row of this table
      */
-    private String getOrderByForThis() {
-        String orderBy = "";
-        List<String> completeId = getCompleteId();
-        for (String idComplete : completeId) {
-            if (!idComplete.equals(completeId.get(0))) {
-                orderBy = orderBy + ", ";
-            }
-            orderBy = orderBy + idComplete;
-        }
-        return orderBy;
+    private boolean isSingleRowJoin(DBTable<?> innerTable) {
+        resolveJoin(innerTable);
+        return innerTable.isReferenceJoined
+                && innerTable.joinReferences != null
+                && innerTable.joinReferences.length == innerTable.getId().size();
     }
 
     /**
@@ -568,12 +1400,71 @@ public abstract class DBTable<T> extends DBData<T> {
     private String getJoinsToAllTables() {
         String tables = "";
         for (DBTable<?> field : tableQueries) {
-            tables = tables + " " + getJoinToInnerTable(field);
-            tables = tables + " " + field.getJoinsToAllTables();
+            if (!isJoinEliminated(field)) {
+                tables = tables + " " + getJoinToInnerTable(field);
+                tables = tables + " " + field.getJoinsToAllTables();
+            }
         }
         return tables;
     }
 
+    /**
+     * Compute how innerTable is joined to this table: {@link #getJoinToInnerTable(DBTable)} records it through
+     * {@link #getJoinOnId(DBTable, boolean, String...) getJoinOnId} or {@link #getJoinOnRef(DBTable, boolean, String...) getJoinOnRef}, and
+     * the join elimination, the ordering and the placement of the where statements depend on it.
+     *
+     * @param innerTable The table joined to this one
+     */
+    private void resolveJoin(DBTable<?> innerTable) {
+        getJoinToInnerTable(innerTable);
+    }
+
+    /**
+     * Check if innerTable can be left out of the query. This is the case when innerTable is repeatable, as only its ID is needed, and
+     * this table contains a reference to said ID given to {@link #getJoinOnRef(DBTable, boolean, String...) getJoinOnRef}: the reference is
+     * then read instead of the ID. innerTable and its own inner tables must not have any where statement or column to order by. The join
+     * must be a LEFT join: an INNER join also drops the rows whose reference doesn't match any row, which the reference alone can't tell.
+     *
+     * @param innerTable The table joined to this one
+     * @return true if the join to innerTable is not needed
+     */
+    private boolean isJoinEliminated(DBTable<?> innerTable) {
+        if (!innerTable.isRepeatable) {
+            return false;
+        }
+        resolveJoin(innerTable);
+        return innerTable.isLeftJoined
+                && innerTable.isReferenceJoined
+                && innerTable.joinReferences != null
+                && innerTable.joinReferences.length == innerTable.getId().size()
+                && !innerTable.hasWhere()
+                && !innerTable.hasOrderBy();
+    }
+
+    private boolean hasOrderBy() {
+        if (!orderBys.isEmpty()) {
+            return true;
+        }
+        for (DBTable<?> table : tableQueries) {
+            if (table.hasOrderBy()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasWhere() {
+        if (!wheres.isEmpty() || !restrictions.isEmpty()) {
+            return true;
+        }
+        for (DBTable<?> table : tableQueries) {
+            if (table.hasWhere()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // SELECT METHODS
 
     /**
@@ -604,6 +1495,29 @@ public abstract class DBTable<T> extends DBData<T> {
 
     }
 
+    /**
+     * Add a String to the query, whose values are deduplicated through a pool private to this query, as for columns with few distinct values.
+     *
+     * @param columnName the field's name as in the database's table
+     */
+    @SuppressWarnings("unused")
+    protected void selectInternedString(String columnName) {
+        selectString(columnName, StringPool.newQueryPool(StringPool.DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * Add a String to the query, whose values are deduplicated through the pool given.
+     *
+     * @param columnName the field's name as in the database's table
+     * @param pool       The pool deduplicating the values, as {@link StringPool#getGlobalPool()}
+     */
+    @SuppressWarnings("unused")
+    protected void selectString(String columnName, StringPool pool) {
+        StringField stringField = new StringField(columnName, pool);
+        primitiveQueries.remove(stringField);
+        primitiveQueries.add(stringField);
+    }
+
     /**
      * Add a simple int to the query.
      *
@@ -667,6 +1581,59 @@ public abstract class DBTable<T> extends DBData<T> {
 
     }
 
+    /**
+     * Load this table as a tree: the rows selected by the where statements of this table, or the rows without parent if there is none, are
+     * the roots, and their descendants up to maxDepth levels below are loaded by the same query through a recursive common table
+     * expression. Each object is then added to the list of its parent, and only the roots are returned. The objects at maxDepth have an
+     * empty list of children. The ID must be a single column, and a tree is always loaded completely, as a list.
+     * <p>
+     * WITH RECURSIVE needs SQLite 3.8.3, shipped from Android 5.0 (API level 21): on older versions the query fails with a
+     * {@link DBArchitectureException}.
+     *
+     * @param parentColumn      The columnName referencing the ID of the parent row, without the table's name
+     * @param childrenFieldName The name of the model object's field receiving the list of children
+     * @param maxDepth          The number of levels loaded below the roots
+     */
+    @SuppressWarnings("unused")
+    protected void selectTree(String parentColumn, String childrenFieldName, int maxDepth) {
+        if (getId().size() != 1) {
+            throw new DBArchitectureException("A tree needs a single column ID for " + tableName, null);
+        }
+        if (maxDepth < 0) {
+            throw new DBArchitectureException("The depth of the tree of " + tableName + " can't be negative", null);
+        }
+        treeParentColumn = parentColumn;
+        treeChildrenField = childrenFieldName;
+        treeMaxDepth = maxDepth;
+        selectId();
+        setGroupColumn(parentColumn);
+    }
+
+    /**
+     * Add the table represented by tableField to the query without joining it. The model object's field is set to a {@link LazyList} if
+     * it's a List, or to a {@link LazyRelation} otherwise, and the first access to one of them loads the table for all the objects of the
+     * same result with a single query.
+     *
+     * @param tableField      A representation of the table to load lazily.
+     * @param alias           The alias used to retrieve the model object's field to assign the value, or null to use the table's name.
+     * @param isReferenceJoin Whether this table contains a reference to tableField ID, or the other way around
+     * @param tableRef        The columnName containing the reference, without the table's name. The IDs referenced must be a single column.
+     */
+    @SuppressWarnings("unused")
+    protected void selectLazyTable(DBTable<?> tableField, String alias, boolean isReferenceJoin, String tableRef) {
+        if (alias != null) {
+            tableField.setAlias(alias);
+        }
+        for (int i = 0; i < lazyJoins.size(); i++) {
+            if (lazyJoins.get(i).getTable().equals(tableField)) {
+                lazyJoins.remove(i);
+                break;
+            }
+        }
+        selectId();
+        lazyJoins.add(new LazyJoin(tableField, isReferenceJoin, tableRef));
+    }
+
     // WRITE METHODS
 
     /**
@@ -793,6 +1760,101 @@ public abstract class DBTable<T> extends DBData<T> {
 
     // DB TABLES AND JOIN HANDLING
 
+    /**
+     * Add the names of this table and of all its inner tables, joined or lazily loaded, as in the database. A table appearing several times
+     * in the tree is added each time.
+     *
+     * @param tableNames The collection of table names to populate
+     */
+    void collectTableNames(Collection<String> tableNames) {
+        tableNames.add(tableName);
+        for (DBTable<?> table : tableQueries) {
+            table.collectTableNames(tableNames);
+        }
+        for (LazyJoin lazyJoin : lazyJoins) {
+            lazyJoin.getTable().collectTableNames(tableNames);
+        }
+    }
+
+    List<DBPrimitiveField<?>> getPrimitiveQueries() {
+        return primitiveQueries;
+    }
+
+    List<DBTable<?>> getTableQueries() {
+        return tableQueries;
+    }
+
+    List<LazyJoin> getLazyJoins() {
+        return lazyJoins;
+    }
+
+    int getIdColumnCount() {
+        return idColumnCount;
+    }
+
+    boolean isRepeatableTable() {
+        return isRepeatable;
+    }
+
+    /**
+     * Return the number of columns selected for this table and its inner tables
+     *
+     * @return The number of columns
+     */
+    int getColumnCount() {
+        return getNumberOfColumnsQueried();
+    }
+
+    /**
+     * Return the field of the model object receiving the value of an inner field or table of this DBTable
+     *
+     * @param fieldToSet The inner field or table
+     * @return The field of the model object
+     */
+    Field getModelField(DBData<?> fieldToSet) {
+        try {
+            return getCachedFieldToSet(fieldToSet);
+        } catch (NoSuchFieldException exception) {
+            throw new DBArchitectureException(exception);
+        }
+    }
+
+    /**
+     * Create a new empty model object of this table
+     *
+     * @return The model object
+     */
+    T newModelObject() {
+        try {
+            return modelObjectClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException exception) {
+            throw new DBArchitectureException(exception);
+        }
+    }
+
+    /**
+     * Return the value of the ID of a model object parsed by this table. The ID must be a single column.
+     *
+     * @param object The model object
+     * @return The value of its ID
+     */
+    int getIdValue(T object) {
+        try {
+            return ((Number) getFieldToSet(getId().get(0)).get(object)).intValue();
+        } catch (NoSuchFieldException | IllegalAccessException exception) {
+            throw new DBArchitectureException(exception);
+        }
+    }
+
+    /**
+     * Return the name of this table as in the database, whatever its alias is.
+     *
+     * @return The name of this table
+     */
+    String getTableName() {
+        return tableName;
+    }
+
     /**
      * Return the IDs with the form containing the alias
      *
@@ -829,8 +1891,10 @@ public abstract class DBTable<T> extends DBData<T> {
      * @return The JOIN statement in the form "[LEFT ]JOIN INNER_TABLE [AS INNER_TABLE_ALIAS] ON TABLE.ID = INNER_TABLE[_ALIAS].INNER_TABLE_REF"
      */
     protected String getJoinOnId(DBTable<?> innerTable, boolean isLeftJoin, String... innerTableRef) {
+        innerTable.setJoin(false, isLeftJoin, innerTableRef);
         return (isLeftJoin ? "LEFT " : "") + "JOIN " + innerTable.tableName + (innerTable.dataName.equals(tableName) ? "" : " AS " + innerTable.dataName)
-                + getJoinConditionOnID(innerTable, innerTableRef);
+                + getJoinConditionOnID(innerTable, innerTableRef)
+                + (innerTable.limitPerParent > 0 ? innerTable.getLimitedJoinWhere(getCompleteId(), innerTableRef) : innerTable.getJoinWhere());
     }
 
     /**
@@ -842,8 +1906,66 @@ public abstract class DBTable<T> extends DBData<T> {
      * @return The JOIN statement in the form "JOIN INNER_TABLE [AS INNER_TABLE_ALIAS] ON TABLE.THIS_TABLE_REF = INNER_TABLE[_ALIAS].ID"
      */
     protected String getJoinOnRef(DBTable<?> innerTable, boolean isLeftJoin, String... thisTableRef) {
+        innerTable.setJoin(true, isLeftJoin, thisTableRef);
         return (isLeftJoin ? "LEFT " : "") + "JOIN " + innerTable.tableName + (innerTable.dataName.equals(tableName) ? "" : " AS " + innerTable.dataName)
-                + getJoinConditionOnRef(innerTable, thisTableRef);
+                + getJoinConditionOnRef(innerTable, thisTableRef) + innerTable.getJoinWhere();
+    }
+
+    /**
+     * Keep how this table is joined to its parent table, as given to {@link #getJoinOnId(DBTable, boolean, String...) getJoinOnId} or
+     * {@link #getJoinOnRef(DBTable, boolean, String...) getJoinOnRef}.
+     *
+     * @param isReferenceJoin Whether the parent table contains the references to this table ID, or the other way around
+     * @param isLeftJoin      Whether this table is a left join or not
+     * @param references      The columnNames containing the references, without the table's name
+     */
+    private void setJoin(boolean isReferenceJoin, boolean isLeftJoin, String... references) {
+        isReferenceJoined = isReferenceJoin;
+        isLeftJoined = isLeftJoin;
+        joinReferences = references;
+        isWherePushedDown = true;
+    }
+
+    /**
+     * Return the where statement of this table to add to the ON clause of its join, so that its rows are filtered before being joined and
+     * that a LEFT join keeps the rows of the parent table without any matching row.
+     *
+     * @return The where statement preceded by " AND ", or an empty String if this table has none
+     */
+    private String getJoinWhere() {
+        String where = getOwnWhere();
+        return TextUtils.isEmpty(where) ? "" : " AND " + where;
+    }
+
+    /**
+     * Return the restriction of this table to its first rows for each parent row, added to the ON clause of its join instead of
+     * {@link #getJoinWhere()}: a subquery correlated to the parent row, filtered by the where statement of this table, ordered and
+     * limited. It selects the ID if it's a single column, the rowid otherwise.
+     *
+     * @param parentIds     The complete ID columns of the parent table
+     * @param innerTableRef The columnNames of this table referencing the parent ID, without the table's name
+     * @return The restriction preceded by " AND "
+     */
+    private String getLimitedJoinWhere(List<String> parentIds, String... innerTableRef) {
+        String rowColumn = getId().size() == 1 ? getId().get(0) : "rowid";
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < parentIds.size() && innerTableRef != null && i < innerTableRef.length; i++) {
+            conditions.add(dataName + "." + innerTableRef[i] + " = " + parentIds.get(i));
+        }
+        if (conditions.isEmpty()) {
+            return getJoinWhere();
+        }
+        String where = getOwnWhere();
+        if (!TextUtils.isEmpty(where)) {
+            conditions.add(where);
+        }
+        List<String> orderBy = new ArrayList<>();
+        for (String column : orderBys) {
+            orderBy.add(dataName + "." + column);
+        }
+        orderBy.addAll(getCompleteId());
+        return " AND " + dataName + "." + rowColumn + " IN (SELECT " + dataName + "." + rowColumn + " FROM " + tableName + " AS " + dataName
+                + " WHERE " + TextUtils.join(" AND ", conditions) + " ORDER BY " + TextUtils.join(", ", orderBy) + " LIMIT " + limitPerParent + ")";
     }
 
     private String getJoinConditionOnID(DBTable<?> innerTable, String... innerTableRef) {
@@ -891,6 +2013,88 @@ public abstract class DBTable<T> extends DBData<T> {
         dataName = aliasName;
     }
 
+    /**
+     * Create a copy of the definition of this DBTable: the same selection, where statements, ordering and inner tables, in lists of its
+     * own so that later changes made to this DBTable aren't reflected in the copy, and none of the parsing state.
+     *
+     * @return A copy of the definition of this DBTable
+     */
+    DBTable<T> copyDefinition() {
+        DBTable<T> copy = newParseContext();
+        copy.wheres = new ArrayList<>(wheres.size());
+        for (WhereStatement statement : wheres) {
+            copy.wheres.add(statement.copy());
+        }
+        copy.restrictions = new ArrayList<>(restrictions);
+        copy.orderBys = new ArrayList<>(orderBys);
+        List<DBTable<?>> innerTables = new ArrayList<>(tableQueries.size());
+        for (DBTable<?> table : tableQueries) {
+            innerTables.add(table.copyDefinition());
+        }
+        copy.tableQueries = innerTables;
+        List<LazyJoin> innerLazyJoins = new ArrayList<>(lazyJoins.size());
+        for (LazyJoin lazyJoin : lazyJoins) {
+            innerLazyJoins.add(lazyJoin.copyDefinition());
+        }
+        copy.lazyJoins = innerLazyJoins;
+        return copy;
+    }
+
+    /**
+     * Create the context of one execution of the query of this DBTable: a shallow clone sharing the definition of this DBTable, its where
+     * statements and ordering, with its own parsing state and its own contexts for the inner tables and fields, which hold parsing state
+     * too. The definition must not be modified while a context is in use, which is the case of the definition of a {@link DBQuery}.
+     *
+     * @return A context without any parsing state
+     */
+    @SuppressWarnings("unchecked")
+    DBTable<T> newParseContext() {
+        DBTable<T> context;
+        try {
+            context = (DBTable<T>) clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new DBArchitectureException("Could not copy the table " + tableName + "(alias : " + dataName + ")", ex);
+        }
+        context.primitiveQueries = new ArrayList<>(primitiveQueries.size());
+        for (DBPrimitiveField<?> primitive : primitiveQueries) {
+            context.primitiveQueries.add(primitive.copy());
+        }
+        context.tableQueries = new ArrayList<>(tableQueries.size());
+        for (DBTable<?> table : tableQueries) {
+            context.tableQueries.add(table.newParseContext());
+        }
+        context.lazyJoins = new ArrayList<>(lazyJoins.size());
+        for (LazyJoin lazyJoin : lazyJoins) {
+            context.lazyJoins.add(lazyJoin.newParseContext());
+        }
+        context.repeatableIds = new ArrayList<>();
+        context.repeatableResults = new ArrayList<>();
+        context.repeatableResult = null;
+        context.repeatableRestriction = null;
+        context.repeatableRestrictionArgs = new ArrayList<>();
+        context.repeatableRestrictionTempTables = new LinkedHashMap<>();
+        context.repeatableInitiated = false;
+        context.recycledObjects = new ArrayList<>();
+        context.recycledLists = new ArrayList<>();
+        context.recycledObjectPosition = 0;
+        context.recycledListPosition = 0;
+        context.isReusingObjects = false;
+        context.groupKeys = new ArrayList<>();
+        context.results = new ArrayList<>();
+        context.currentIds = new int[0];
+        context.hasCurrentIds = false;
+        context.cursor = null;
+        context.cursorSql = null;
+        context.pipelineBatchSize = 0;
+        context.pipelineBatchCount = 0;
+        context.columnQueriedCount = -1;
+        context.initRowPosition = 0;
+        context.redundantRows = 0;
+        context.willBeRedundant = false;
+        context.resetCurrentParsing();
+        return context;
+    }
+
     // DATA EXTRACTION
 
     /**
@@ -901,9 +2105,9 @@ public abstract class DBTable<T> extends DBData<T> {
             if (isRepeatable && cursor == null) {
                 return idColumnCount;
             } else {
-                columnQueriedCount = primitiveQueries.size();
+                columnQueriedCount = primitiveQueries.size() + lazyJoins.size();
                 for (DBTable<?> field : tableQueries) {
-                    columnQueriedCount += field.getNumberOfColumnsQueried();
+                    columnQueriedCount += field.isRepeatable ? field.idColumnCount : field.getNumberOfColumnsQueried();
                 }
             }
         }
@@ -918,14 +2122,27 @@ public abstract class DBTable<T> extends DBData<T> {
      * @return a List of model object
      */
     private List<T> getResult(Cursor cursor, int nbItem) {
+        parseRows(cursor, nbItem, null);
+        return getResultList();
+    }
+
+    /**
+     * Parse the rows of the cursor until nbItem objects are complete, adding them to the result list or giving them to the visitor
+     *
+     * @param cursor  The cursor which has received the data from the database.
+     * @param nbItem  The number of item to retrieve
+     * @param visitor The visitor receiving each complete object, or null to add them to the result list
+     */
+    private void parseRows(Cursor cursor, int nbItem, RowVisitor<T> visitor) {
         if (cursor.isBeforeFirst()) {
             cursor.moveToFirst();
         }
         int itemParsed = 0;
         if (!cursor.isAfterLast()) {
             initId(cursor, 0);
+            addGroupKey(cursor);
         } else {
-            return getResultList();
+            return;
         }
         while (!cursor.isAfterLast() && (nbItem == QUERY_ALL_ITEMS || itemParsed < nbItem)) {
             if (compareIDs(cursor, 0)) {
@@ -937,32 +2154,127 @@ public abstract class DBTable<T> extends DBData<T> {
                 }
             } else {
                 setComplete();
-                addResultToList();
+                completeRootObject(visitor);
                 resetCurrentParsing();
                 initId(cursor, 0);
+                addGroupKey(cursor);
                 itemParsed++;
             }
 
         }
         if (cursor.isAfterLast()) {
             setComplete();
+            completeRootObject(visitor);
+        }
+    }
+
+    private void completeRootObject(RowVisitor<T> visitor) {
+        if (visitor == null) {
             addResultToList();
+        } else {
+            visitor.visit(currentObject);
+            recycle();
+        }
+    }
+
+    /**
+     * Select an additional column after all the others, whose value is kept for each object parsed, in the same order as the results.
+     *
+     * @param columnName The column name, without the table's name
+     */
+    void setGroupColumn(String columnName) {
+        groupColumn = columnName;
+    }
+
+    /**
+     * Return the values of the column set by {@link #setGroupColumn(String)} for each object parsed by the last call to
+     * {@link #getResult(SQLiteOpenHelper, String)}.
+     *
+     * @return The values of the group column, in the same order as the results
+     */
+    List<String> getGroupKeys() {
+        return groupKeys;
+    }
+
+    /**
+     * Check if this table is loaded as a tree, as set by {@link #selectTree(String, String, int)}
+     *
+     * @return true if this table is loaded as a tree
+     */
+    boolean isTree() {
+        return treeParentColumn != null;
+    }
+
+    /**
+     * Return the restriction to the IDs of the tree: a recursive common table expression starting from the roots, selected by the where
+     * statements of this table, and adding the children of each level until maxDepth.
+     */
+    private String getTreeRestriction() {
+        String id = getId().get(0);
+        String rootWhere = getOwnWhere();
+        if (TextUtils.isEmpty(rootWhere)) {
+            rootWhere = dataName + "." + treeParentColumn + WhereCondition.NULL.getCondition();
+        }
+        return dataName + "." + id + " IN (WITH RECURSIVE jo_tree(id, depth) AS ("
+                + "SELECT " + dataName + "." + id + ", 0 FROM " + tableName + " AS " + dataName + " WHERE " + rootWhere
+                + " UNION ALL SELECT jo_child." + id + ", jo_tree.depth + 1 FROM " + tableName + " AS jo_child"
+                + " JOIN jo_tree ON jo_child." + treeParentColumn + " = jo_tree.id WHERE jo_tree.depth < " + treeMaxDepth + ")"
+                + " SELECT id FROM jo_tree)";
+    }
+
+    /**
+     * Add each object parsed to the list of children of its parent, found by the parent ID read in the group column
+     *
+     * @param nodes The objects parsed, in the same order as the group keys
+     * @return The objects whose parent isn't part of the result
+     */
+    private List<T> assembleTree(List<T> nodes) {
+        try {
+            Field childrenField = getFieldToSet(treeChildrenField);
+            Map<String, List<T>> childrenById = new HashMap<>();
+            for (T node : nodes) {
+                List<T> children = new ArrayList<>();
+                childrenField.set(node, children);
+                childrenById.put(String.valueOf(getIdValue(node)), children);
+            }
+            List<T> roots = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                String parentId = groupKeys.get(i);
+                List<T> siblings = parentId == null ? null : childrenById.get(parentId);
+                if (siblings == null) {
+                    roots.add(nodes.get(i));
+                } else {
+                    siblings.add(nodes.get(i));
+                }
+            }
+            return roots;
+        } catch (NoSuchFieldException | IllegalAccessException exception) {
+            throw new DBArchitectureException("Exception caught during the assembly of the tree of " + tableName, exception);
+        }
+    }
+
+    private void addGroupKey(Cursor cursor) {
+        if (groupColumn != null) {
+            groupKeys.add(cursor.getString(getNumberOfColumnsQueried()));
         }
-        return getResultList();
     }
 
     private void initId(Cursor cursor, int column) {
+        if (currentIds.length != idColumnCount) {
+            currentIds = new int[idColumnCount];
+        }
         for (int offset = 0; offset < idColumnCount; offset++) {
-            ids.getIds().add(String.valueOf(cursor.getInt(column + offset)));
+            currentIds[offset] = cursor.getInt(column + offset);
         }
+        hasCurrentIds = true;
     }
 
     private boolean compareIDs(Cursor cursor, int column) {
-        if (ids.getIds().size() < 1) {
+        if (!hasCurrentIds) {
             return true;
         }
         for (int offset = 0; offset < idColumnCount; offset++) {
-            if (!ids.getIds().get(offset).equals(String.valueOf(cursor.getInt(column + offset)))) {
+            if (currentIds[offset] != cursor.getInt(column + offset)) {
                 return false;
             }
         }
@@ -996,8 +2308,15 @@ public abstract class DBTable<T> extends DBData<T> {
         tableToExtract.initRepeatableResult(id);
     }
 
+    /**
+     * Add the preloaded object with the ID given to the current value of this repeatable table. A reference to a missing row, which a LEFT
+     * join reads as no object, is ignored.
+     */
     private void initRepeatableResult(DbId id) {
         int position = repeatableIds.indexOf(id);
+        if (position == -1) {
+            return;
+        }
         repeatableResult = results.get(position);
         repeatableResults.add(results.get(position));
     }
@@ -1010,7 +2329,7 @@ public abstract class DBTable<T> extends DBData<T> {
     private void setRepeatableValues(DBTable<?> tableToExtract) {
 
         try {
-            Field field = getFieldToSet(tableToExtract);
+            Field field = getCachedFieldToSet(tableToExtract);
             if (getFieldType(tableToExtract) == FieldTypeEnum.LIST) {
                 field.set(currentObject, tableToExtract.repeatableResults);
             } else {
@@ -1046,6 +2365,20 @@ public abstract class DBTable<T> extends DBData<T> {
         return modelObjectClass.getField(fieldToSet);
     }
 
+    /**
+     * Return the {@link java.lang.reflect.Field Field} given by {@link #getFieldToSet(DBData)}, looking it up only the first time.
+     *
+     * @param fieldToSet Representation for retrieving the data from the database. Used to get the model object field name
+     * @return The Field to be set
+     * @throws NoSuchFieldException
+     */
+    private Field getCachedFieldToSet(DBData<?> fieldToSet) throws NoSuchFieldException {
+        if (fieldToSet.modelField == null) {
+            fieldToSet.modelField = getFieldToSet(fieldToSet);
+        }
+        return fieldToSet.modelField;
+    }
+
     private void setWillBeRedundant(boolean isRedundant, int cursorPosition) {
         if (willBeRedundant == isRedundant) {
             return;
@@ -1062,12 +2395,64 @@ public abstract class DBTable<T> extends DBData<T> {
     }
 
     private void resetList() {
-        results = new ArrayList<>();
+        results = obtainResultList();
         initRowPosition = -1;
     }
 
+    // OBJECT REUSE
+
+    private void setReusingObjects(boolean isReusing) {
+        isReusingObjects = isReusing;
+        recycledObjects.clear();
+        recycledLists.clear();
+        recycledObjectPosition = 0;
+        recycledListPosition = 0;
+        for (DBTable<?> table : tableQueries) {
+            if (!table.isRepeatable) {
+                table.setReusingObjects(isReusing);
+            }
+        }
+    }
+
+    /**
+     * Make all the model objects and lists created since the last call available again for the next root object. The list currently
+     * filled is empty at this point and is obtained again so that it isn't handed out twice.
+     */
+    private void recycle() {
+        recycledObjectPosition = 0;
+        recycledListPosition = 0;
+        results = obtainResultList();
+        for (DBTable<?> table : tableQueries) {
+            if (!table.isRepeatable) {
+                table.recycle();
+            }
+        }
+    }
+
+    private T obtainModelObject() throws IllegalAccessException, InstantiationException {
+        if (!isReusingObjects) {
+            return modelObjectClass.newInstance();
+        }
+        if (recycledObjectPosition == recycledObjects.size()) {
+            recycledObjects.add(modelObjectClass.newInstance());
+        }
+        return recycledObjects.get(recycledObjectPosition++);
+    }
+
+    private List<T> obtainResultList() {
+        if (!isReusingObjects) {
+            return new ArrayList<>();
+        }
+        if (recycledListPosition == recycledLists.size()) {
+            recycledLists.add(new ArrayList<T>());
+        }
+        List<T> list = recycledLists.get(recycledListPosition++);
+        list.clear();
+        return list;
+    }
+
     private void setValues(DBTable<?> tableToExtract) throws NoSuchFieldException, IllegalAccessException {
-        Field field = getFieldToSet(tableToExtract);
+        Field field = getCachedFieldToSet(tableToExtract);
         if (getFieldType(tableToExtract) == FieldTypeEnum.LIST) {
             tableToExtract.addResultToList();
             field.set(currentObject, tableToExtract.getResultList());
@@ -1079,7 +2464,7 @@ public abstract class DBTable<T> extends DBData<T> {
     private FieldTypeEnum getFieldType(DBData<?> dbFieldToExtract) {
         if (dbFieldToExtract.getFieldTypeEnum() == null) {
             try {
-                Field field = getFieldToSet(dbFieldToExtract);
+                Field field = getCachedFieldToSet(dbFieldToExtract);
                 Type genericType = field.getGenericType();
                 dbFieldToExtract.fieldTypeEnum = genericType instanceof ParameterizedType ? FieldTypeEnum.LIST : FieldTypeEnum.PRIMITIVE;
             } catch (NoSuchFieldException e) {
@@ -1089,6 +2474,50 @@ public abstract class DBTable<T> extends DBData<T> {
         return dbFieldToExtract.fieldTypeEnum;
     }
 
+    /**
+     * Create copies of the model objects given, and of all the model objects they contain for the tables selected in this DBTable.
+     *
+     * @param objects The model objects parsed by this DBTable
+     * @return The list of copies
+     */
+    List<T> copyResult(List<T> objects) {
+        List<T> copies = new ArrayList<>(objects.size());
+        for (T object : objects) {
+            copies.add(copyObject(object));
+        }
+        return copies;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T copyObject(Object object) {
+        if (object == null) {
+            return null;
+        }
+        try {
+            T copy = modelObjectClass.newInstance();
+            for (DBPrimitiveField<?> primitive : primitiveQueries) {
+                Field field = getCachedFieldToSet(primitive);
+                field.set(copy, field.get(object));
+            }
+            for (LazyJoin lazyJoin : lazyJoins) {
+                Field field = getCachedFieldToSet(lazyJoin.getTable());
+                field.set(copy, field.get(object));
+            }
+            for (DBTable<?> table : tableQueries) {
+                Field field = getCachedFieldToSet(table);
+                Object value = field.get(object);
+                if (value instanceof List) {
+                    field.set(copy, table.copyResult((List) value));
+                } else {
+                    field.set(copy, table.copyObject(value));
+                }
+            }
+            return copy;
+        } catch (Exception ex) {
+            throw new DBArchitectureException("Exception caught during the copy of an object of table " + tableName + "(alias : " + dataName + ")", ex);
+        }
+    }
+
     private void addResultToList() {
         if (isComplete) {
             results.add(currentObject);
@@ -6,12 +6,18 @@ public class DBWrite {
     
     private ContentValues mValues;
     private String mTableName;
+    private Integer mId;
     
     public DBWrite(String tableName, ContentValues values){
         mValues = values;
         this.mTableName = tableName;
     }
 
+    public DBWrite(String tableName, ContentValues values, Integer id){
+        this(tableName, values);
+        mId = id;
+    }
+
     public ContentValues getValue() {
         return mValues;
     }
@@ -20,4 +26,11 @@ public class DBWrite {
         return mTableName;
     }
 
+    /**
+     * @return The ID of the row written, or null if it's unknown or not a single column
+     */
+    public Integer getId() {
+        return mId;
+    }
+
 }
@@ -0,0 +1,123 @@
+package be.florien.joinorm.architecture;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stream used by the generated codecs of the models to read a graph of objects written by a {@link GraphWriter}.
+ */
+public final class GraphReader {
+
+    /*
+     * FIELDS
+     */
+
+    private final DataInputStream input;
+    private final List<Object> readObjects = new ArrayList<>();
+    private Object reference = null;
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    public GraphReader(InputStream input) {
+        this.input = new DataInputStream(input);
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Read the start of an object. If it's null or a reference, the object to return is given by {@link #getReference()}, otherwise the
+     * new object must be given to {@link #register(Object)} before reading its fields.
+     *
+     * @return true if the object is new and its fields must be read now
+     * @throws IOException If the stream can't be read
+     */
+    public boolean beginObject() throws IOException {
+        byte tag = input.readByte();
+        if (tag == GraphWriter.TAG_OBJECT) {
+            return true;
+        }
+        reference = tag == GraphWriter.TAG_REFERENCE ? readObjects.get(input.readInt()) : null;
+        return false;
+    }
+
+    /**
+     * @return The object already read referenced by the last call to {@link #beginObject()}, or null
+     */
+    public Object getReference() {
+        return reference;
+    }
+
+    /**
+     * Keep a new object, for the references to it read later
+     *
+     * @param object The new object, whose fields are read next
+     */
+    public void register(Object object) {
+        readObjects.add(object);
+    }
+
+    /**
+     * @return The size of the list whose elements are read next, -1 if it's null
+     * @throws IOException If the stream can't be read
+     */
+    public int readListSize() throws IOException {
+        return input.readInt();
+    }
+
+    public int readInt() throws IOException {
+        return input.readInt();
+    }
+
+    public long readLong() throws IOException {
+        return input.readLong();
+    }
+
+    public double readDouble() throws IOException {
+        return input.readDouble();
+    }
+
+    public float readFloat() throws IOException {
+        return input.readFloat();
+    }
+
+    public boolean readBoolean() throws IOException {
+        return input.readBoolean();
+    }
+
+    public Integer readNullableInt() throws IOException {
+        return input.readBoolean() ? input.readInt() : null;
+    }
+
+    public Long readNullableLong() throws IOException {
+        return input.readBoolean() ? input.readLong() : null;
+    }
+
+    public Double readNullableDouble() throws IOException {
+        return input.readBoolean() ? input.readDouble() : null;
+    }
+
+    public Float readNullableFloat() throws IOException {
+        return input.readBoolean() ? input.readFloat() : null;
+    }
+
+    public Boolean readNullableBoolean() throws IOException {
+        return input.readBoolean() ? input.readBoolean() : null;
+    }
+
+    public String readString() throws IOException {
+        int length = input.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, GraphWriter.UTF_8);
+    }
+}
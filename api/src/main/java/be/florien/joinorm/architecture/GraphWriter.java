@@ -0,0 +1,146 @@
+package be.florien.joinorm.architecture;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stream used by the generated codecs of the models to write a graph of objects. An object already written is written again as a reference
+ * to its first occurrence, so the objects shared in the graph are shared once read, and cycles end.
+ */
+public final class GraphWriter {
+
+    /*
+     * CONSTANTS
+     */
+
+    static final byte TAG_NULL = 0;
+    static final byte TAG_REFERENCE = 1;
+    static final byte TAG_OBJECT = 2;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /*
+     * FIELDS
+     */
+
+    private final DataOutputStream output;
+    private final Map<Object, Integer> writtenObjects = new IdentityHashMap<>();
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    public GraphWriter(OutputStream output) {
+        this.output = new DataOutputStream(output);
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Write the start of an object: null, a reference to the same object already written, or the mark of a new object.
+     *
+     * @param object The object to write
+     * @return true if the object is new and its fields must be written now
+     * @throws IOException If the stream can't be written
+     */
+    public boolean beginObject(Object object) throws IOException {
+        if (object == null) {
+            output.writeByte(TAG_NULL);
+            return false;
+        }
+        Integer reference = writtenObjects.get(object);
+        if (reference != null) {
+            output.writeByte(TAG_REFERENCE);
+            output.writeInt(reference);
+            return false;
+        }
+        writtenObjects.put(object, writtenObjects.size());
+        output.writeByte(TAG_OBJECT);
+        return true;
+    }
+
+    /**
+     * Write the size of a list, -1 if it's null
+     *
+     * @param list The list whose elements are written next
+     * @throws IOException If the stream can't be written
+     */
+    public void writeListSize(List<?> list) throws IOException {
+        output.writeInt(list == null ? -1 : list.size());
+    }
+
+    public void writeInt(int value) throws IOException {
+        output.writeInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        output.writeLong(value);
+    }
+
+    public void writeDouble(double value) throws IOException {
+        output.writeDouble(value);
+    }
+
+    public void writeFloat(float value) throws IOException {
+        output.writeFloat(value);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        output.writeBoolean(value);
+    }
+
+    public void writeNullableInt(Integer value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeInt(value);
+        }
+    }
+
+    public void writeNullableLong(Long value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeLong(value);
+        }
+    }
+
+    public void writeNullableDouble(Double value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeDouble(value);
+        }
+    }
+
+    public void writeNullableFloat(Float value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeFloat(value);
+        }
+    }
+
+    public void writeNullableBoolean(Boolean value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeBoolean(value);
+        }
+    }
+
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    public void flush() throws IOException {
+        output.flush();
+    }
+}
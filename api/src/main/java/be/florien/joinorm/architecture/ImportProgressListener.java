@@ -0,0 +1,17 @@
+package be.florien.joinorm.architecture;
+
+/**
+ * Callback receiving the progress of {@link DBTable#importAll(android.database.sqlite.SQLiteOpenHelper, java.util.Iterator, int,
+ * ImportProgressListener) importAll}, once for each chunk committed.
+ */
+public interface ImportProgressListener {
+
+    /**
+     * Called on the importing thread once a chunk of objects is committed.
+     *
+     * @param importedCount  The number of objects imported so far, this chunk included
+     * @param chunkCount     The number of objects of this chunk
+     * @param chunkTimeNanos The time spent to write and commit this chunk, in nanoseconds
+     */
+    void onChunkImported(int importedCount, int chunkCount, long chunkTimeNanos);
+}
@@ -0,0 +1,212 @@
+package be.florien.joinorm.architecture;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record the queries executed by all the DBTable once set with {@link DBTable#setIndexAdvisor(IndexAdvisor)}, and suggest the indexes they
+ * need. Each new query is explained with EXPLAIN QUERY PLAN to find the tables it scans and whether it sorts in a temporary B-tree. The
+ * columns used by the where statements, the join conditions and the order of the query are the candidates for an index, ranked by the
+ * accumulated time of the queries scanning their table.
+ */
+public class IndexAdvisor {
+
+    /*
+     * FIELDS
+     */
+
+    private static final int DEFAULT_MAX_QUERY_SHAPES = 200;
+
+    private final Map<String, QueryShape> queryShapes;
+
+    /*
+     * CONSTRUCTORS
+     */
+
+    /**
+     * Create an advisor keeping the 200 queries executed most recently
+     */
+    public IndexAdvisor() {
+        this(DEFAULT_MAX_QUERY_SHAPES);
+    }
+
+    /**
+     * Create an advisor keeping a limited number of queries, the least recently executed being forgotten first
+     *
+     * @param maxQueryShapes The maximum number of queries recorded
+     */
+    public IndexAdvisor(final int maxQueryShapes) {
+        if (maxQueryShapes <= 0) {
+            throw new IllegalArgumentException("The maximum number of queries must be positive");
+        }
+        queryShapes = new LinkedHashMap<String, QueryShape>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryShape> eldest) {
+                return size() > maxQueryShapes;
+            }
+        };
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Return all the queries recorded so far
+     *
+     * @return The recorded queries
+     */
+    public synchronized List<QueryShape> getQueryShapes() {
+        return new ArrayList<>(queryShapes.values());
+    }
+
+    /**
+     * Return the indexes which would have been used by the queries scanning or sorting a table, the most useful first
+     *
+     * @return The index suggestions
+     */
+    public synchronized List<IndexSuggestion> getSuggestions() {
+        Map<IndexSuggestion, IndexSuggestion> suggestions = new HashMap<>();
+        for (QueryShape shape : queryShapes.values()) {
+            for (IndexSuggestion candidate : shape.getCandidates()) {
+                if (shape.isImprovableBy(candidate.getTableName())) {
+                    addSuggestion(suggestions, candidate, shape);
+                }
+            }
+            if (shape.isUsingTempBTree()) {
+                for (IndexSuggestion candidate : shape.getOrderCandidates()) {
+                    addSuggestion(suggestions, candidate, shape);
+                }
+            }
+        }
+        List<IndexSuggestion> ranked = new ArrayList<>(suggestions.values());
+        Collections.sort(ranked, new Comparator<IndexSuggestion>() {
+            @Override
+            public int compare(IndexSuggestion first, IndexSuggestion second) {
+                return first.getQueryTimeNanos() < second.getQueryTimeNanos() ? 1 : (first.getQueryTimeNanos() == second.getQueryTimeNanos() ? 0 : -1);
+            }
+        });
+        return ranked;
+    }
+
+    /**
+     * Create the maxCount most useful indexes suggested so far
+     *
+     * @param openHelper The helper providing access to the database to modify
+     * @param maxCount   The maximum number of indexes to create
+     * @return The indexes created
+     */
+    public List<IndexSuggestion> applySuggestions(SQLiteOpenHelper openHelper, int maxCount) {
+        List<IndexSuggestion> suggestions = getSuggestions();
+        List<IndexSuggestion> applied = suggestions.subList(0, Math.min(maxCount, suggestions.size()));
+        SQLiteDatabase database = openHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (IndexSuggestion suggestion : applied) {
+                database.execSQL(suggestion.getCreateStatement());
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return new ArrayList<>(applied);
+    }
+
+    /**
+     * Forget all the queries recorded so far
+     */
+    public synchronized void clear() {
+        queryShapes.clear();
+    }
+
+    /*
+     * PACKAGE METHODS
+     */
+
+    /**
+     * Record an execution of the query. The first time the query is seen, its plan is explained.
+     *
+     * @param database        The database where the query has been executed
+     * @param sql             The sql query
+     * @param candidates      The indexes which could be used by the query
+     * @param orderCandidates The indexes on the ordering columns of the query
+     * @param tableNames      The names of the tables of the query, by alias
+     * @param timeNanos       The time spent to execute and parse the query
+     */
+    synchronized void record(SQLiteDatabase database, String sql, List<IndexSuggestion> candidates, List<IndexSuggestion> orderCandidates,
+                             Map<String, String> tableNames, long timeNanos) {
+        QueryShape shape = queryShapes.get(sql);
+        if (shape == null) {
+            shape = new QueryShape(sql, candidates, orderCandidates);
+            explain(database, shape, tableNames);
+            queryShapes.put(sql, shape);
+        }
+        shape.addExecution(timeNanos);
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    private void addSuggestion(Map<IndexSuggestion, IndexSuggestion> suggestions, IndexSuggestion candidate, QueryShape shape) {
+        IndexSuggestion suggestion = suggestions.get(candidate);
+        if (suggestion == null) {
+            suggestion = new IndexSuggestion(candidate.getTableName(), candidate.getColumns());
+            suggestions.put(suggestion, suggestion);
+        }
+        suggestion.addQueryTime(shape.getTotalTimeNanos());
+    }
+
+    /**
+     * Add the steps of the query plan to the shape. If the query can't be explained, for example because a temporary table it reads
+     * doesn't exist anymore, no step is added and nothing is suggested for it.
+     */
+    private void explain(SQLiteDatabase database, QueryShape shape, Map<String, String> tableNames) {
+        List<String> details = new ArrayList<>();
+        try {
+            Cursor plan = database.rawQuery("EXPLAIN QUERY PLAN " + shape.getSql(), null);
+            try {
+                int detailColumn = plan.getColumnCount() - 1;
+                while (plan.moveToNext()) {
+                    details.add(plan.getString(detailColumn));
+                }
+            } finally {
+                plan.close();
+            }
+        } catch (SQLiteException ex) {
+            Log.w("IndexAdvisor", "Unable to explain the query " + shape.getSql(), ex);
+            return;
+        }
+        for (String detail : details) {
+            shape.addPlanStep(detail, getScannedTable(detail, tableNames));
+        }
+    }
+
+    /**
+     * Return the name of the table read by the step of the query plan if it's read entirely or through an automatic index, null otherwise.
+     * The detail is in the form "SCAN [TABLE] NAME [AS ALIAS]" or "SEARCH [TABLE] NAME [AS ALIAS] USING AUTOMATIC ...".
+     */
+    private String getScannedTable(String detail, Map<String, String> tableNames) {
+        boolean isScan = detail.startsWith("SCAN ") && !detail.contains(" USING ");
+        boolean isAutomaticIndex = detail.startsWith("SEARCH ") && detail.contains(" AUTOMATIC ");
+        if (!isScan && !isAutomaticIndex) {
+            return null;
+        }
+        String[] words = detail.split(" ");
+        int nameIndex = words.length > 2 && words[1].equals("TABLE") ? 2 : 1;
+        String name = words.length > nameIndex + 2 && words[nameIndex + 1].equals("AS") ? words[nameIndex + 2] : words[nameIndex];
+        String tableName = tableNames.get(name);
+        return tableName == null ? name : tableName;
+    }
+}
@@ -0,0 +1,77 @@
+package be.florien.joinorm.architecture;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index suggested by the {@link IndexAdvisor} on some columns of a table, with the time spent by the queries which could use it.
+ */
+public class IndexSuggestion {
+
+    private final String tableName;
+    private final List<String> columns;
+    private long queryTimeNanos;
+
+    IndexSuggestion(String tableName, List<String> columns) {
+        this.tableName = tableName;
+        this.columns = new ArrayList<>(columns);
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Return the accumulated time of the executions of the queries which scanned or sorted the table where this index could have been used
+     *
+     * @return The time in nanoseconds
+     */
+    public long getQueryTimeNanos() {
+        return queryTimeNanos;
+    }
+
+    /**
+     * Return the statement creating this index
+     *
+     * @return The CREATE INDEX statement
+     */
+    public String getCreateStatement() {
+        return "CREATE INDEX IF NOT EXISTS idx_" + tableName + "_" + TextUtils.join("_", columns) + " ON " + tableName + " (" + TextUtils.join(", ", columns) + ")";
+    }
+
+    void addQueryTime(long nanos) {
+        queryTimeNanos += nanos;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + tableName.hashCode();
+        result = prime * result + columns.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        IndexSuggestion other = (IndexSuggestion) obj;
+        return tableName.equals(other.tableName) && columns.equals(other.columns);
+    }
+
+    @Override
+    public String toString() {
+        return getCreateStatement();
+    }
+}
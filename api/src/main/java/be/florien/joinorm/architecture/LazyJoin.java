@@ -0,0 +1,81 @@
+package be.florien.joinorm.architecture;
+
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.List;
+
+/**
+ * Table joined lazily to a DBTable, with the columns matching the rows of both tables.
+ */
+class LazyJoin {
+
+    private final DBTable<?> table;
+    private final boolean isReferenceJoin;
+    private final String tableRef;
+    private LazyLoader<?> loader;
+
+    /**
+     * Constructs a new LazyJoin
+     *
+     * @param table           The definition of the table joined lazily
+     * @param isReferenceJoin Whether the parent table contains a reference to the joined table ID, or the other way around
+     * @param tableRef        The columnName containing the reference, without the table's name
+     */
+    LazyJoin(DBTable<?> table, boolean isReferenceJoin, String tableRef) {
+        this.table = table;
+        this.isReferenceJoin = isReferenceJoin;
+        this.tableRef = tableRef;
+    }
+
+    DBTable<?> getTable() {
+        return table;
+    }
+
+    /**
+     * Return the column of the parent table containing the key of the joined rows
+     *
+     * @param parentIds The id columns of the parent table
+     * @return The column name, without the table's name
+     */
+    String getParentKeyColumn(List<String> parentIds) {
+        return isReferenceJoin ? tableRef : parentIds.get(0);
+    }
+
+    LazyJoin copyDefinition() {
+        return new LazyJoin(table.copyDefinition(), isReferenceJoin, tableRef);
+    }
+
+    /**
+     * Create the LazyJoin of one execution, sharing the definition of the lazy table, which is copied by each query of its loader, and
+     * without loader
+     *
+     * @return A LazyJoin without loader
+     */
+    LazyJoin newParseContext() {
+        return new LazyJoin(table, isReferenceJoin, tableRef);
+    }
+
+    /**
+     * Create the loader used by the placeholders of the next parsing
+     *
+     * @param openHelper The helper providing access to the database to query
+     */
+    void initLoader(SQLiteOpenHelper openHelper) {
+        loader = newLoader(openHelper, table);
+    }
+
+    /**
+     * Create the placeholder for the key given
+     *
+     * @param key    The key of the joined rows, or null if there is none
+     * @param isList Whether the placeholder is a list
+     * @return a {@link LazyList} if isList is true, a {@link LazyRelation} otherwise
+     */
+    Object newPlaceholder(String key, boolean isList) {
+        return isList ? loader.newList(key) : loader.newRelation(key);
+    }
+
+    private <T> LazyLoader<T> newLoader(SQLiteOpenHelper openHelper, DBTable<T> definition) {
+        return new LazyLoader<>(openHelper, definition, isReferenceJoin ? definition.getId().get(0) : tableRef);
+    }
+}
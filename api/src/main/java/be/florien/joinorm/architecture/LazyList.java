@@ -0,0 +1,61 @@
+package be.florien.joinorm.architecture;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Placeholder for a list of model objects joined lazily, set by the parser instead of the list itself for the fields selected with
+ * {@link DBTable#selectLazyTable(DBTable, String, boolean, String) selectLazyTable}. The first access to the list loads it and all the other
+ * lists of the same result not loaded yet, with a single query.
+ *
+ * @param <T> model object joined lazily
+ */
+public final class LazyList<T> extends AbstractList<T> {
+
+    private final String key;
+    private final LazyLoader<T> loader;
+    private List<T> values = Collections.emptyList();
+    private volatile boolean isLoaded;
+
+    LazyList(String key, LazyLoader<T> loader) {
+        this.key = key;
+        this.loader = loader;
+        isLoaded = (key == null);
+    }
+
+    @Override
+    public T get(int location) {
+        return getValues().get(location);
+    }
+
+    @Override
+    public int size() {
+        return getValues().size();
+    }
+
+    /**
+     * Check if the list has already been loaded
+     *
+     * @return true if accessing the list won't query the database
+     */
+    public boolean isLoaded() {
+        return isLoaded;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    void setLoaded(List<T> loadedValues) {
+        values = loadedValues;
+        isLoaded = true;
+    }
+
+    private List<T> getValues() {
+        if (!isLoaded) {
+            loader.load();
+        }
+        return values;
+    }
+}
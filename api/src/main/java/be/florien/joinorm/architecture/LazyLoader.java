@@ -0,0 +1,116 @@
+package be.florien.joinorm.architecture;
+
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load the values of all the pending {@link LazyRelation} and {@link LazyList} created for one lazy join during the parsing of one result.
+ * The loading is made with one query per {@value #KEYS_PER_QUERY} distinct keys, restricting the joined table to the keys of the pending
+ * placeholders. The keys are bound as parameters, so the queries of a loader share the same sql.
+ *
+ * @param <T> model object joined lazily
+ */
+class LazyLoader<T> {
+
+    private static final int KEYS_PER_QUERY = WhereStatement.MAX_BOUND_VALUES;
+
+    private final SQLiteOpenHelper openHelper;
+    private final DBTable<T> definition;
+    private final String keyColumn;
+    private final List<LazyRelation<T>> pendingRelations = new ArrayList<>();
+    private final List<LazyList<T>> pendingLists = new ArrayList<>();
+
+    /**
+     * Constructs a new LazyLoader
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param definition The definition of the joined table, which is copied for each loading
+     * @param keyColumn  The column of the joined table matching the key of the placeholders, without the table's name
+     */
+    LazyLoader(SQLiteOpenHelper openHelper, DBTable<T> definition, String keyColumn) {
+        this.openHelper = openHelper;
+        this.definition = definition;
+        this.keyColumn = keyColumn;
+    }
+
+    synchronized LazyRelation<T> newRelation(String key) {
+        LazyRelation<T> relation = new LazyRelation<>(key, this);
+        if (key != null) {
+            pendingRelations.add(relation);
+        }
+        return relation;
+    }
+
+    synchronized LazyList<T> newList(String key) {
+        LazyList<T> list = new LazyList<>(key, this);
+        if (key != null) {
+            pendingLists.add(list);
+        }
+        return list;
+    }
+
+    /**
+     * Load the values of all the pending placeholders
+     */
+    synchronized void load() {
+        if (pendingRelations.isEmpty() && pendingLists.isEmpty()) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (LazyRelation<T> relation : pendingRelations) {
+            keys.add(relation.getKey());
+        }
+        for (LazyList<T> list : pendingLists) {
+            keys.add(list.getKey());
+        }
+
+        Map<String, List<T>> valuesByKey = new HashMap<>();
+        List<String> keysToQuery = new ArrayList<>(KEYS_PER_QUERY);
+        for (String key : keys) {
+            keysToQuery.add(key);
+            if (keysToQuery.size() == KEYS_PER_QUERY) {
+                query(keysToQuery, valuesByKey);
+                keysToQuery.clear();
+            }
+        }
+        if (!keysToQuery.isEmpty()) {
+            query(keysToQuery, valuesByKey);
+        }
+
+        for (LazyRelation<T> relation : pendingRelations) {
+            relation.setLoaded(getValues(valuesByKey, relation.getKey()));
+        }
+        for (LazyList<T> list : pendingLists) {
+            list.setLoaded(getValues(valuesByKey, list.getKey()));
+        }
+        pendingRelations.clear();
+        pendingLists.clear();
+    }
+
+    private void query(List<String> keys, Map<String, List<T>> valuesByKey) {
+        DBTable<T> table = definition.copyDefinition();
+        table.addRestriction(new WhereStatement(keyColumn, keys, true));
+        table.setGroupColumn(keyColumn);
+        List<T> values = table.getResult(openHelper, table.buildQuery());
+        List<String> groupKeys = table.getGroupKeys();
+        for (int i = 0; i < values.size(); i++) {
+            List<T> group = valuesByKey.get(groupKeys.get(i));
+            if (group == null) {
+                group = new ArrayList<>();
+                valuesByKey.put(groupKeys.get(i), group);
+            }
+            group.add(values.get(i));
+        }
+    }
+
+    private List<T> getValues(Map<String, List<T>> valuesByKey, String key) {
+        List<T> values = valuesByKey.get(key);
+        return values == null ? new ArrayList<T>() : values;
+    }
+}
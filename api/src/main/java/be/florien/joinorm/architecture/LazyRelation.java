@@ -0,0 +1,54 @@
+package be.florien.joinorm.architecture;
+
+import java.util.List;
+
+/**
+ * Placeholder for a model object joined lazily, set by the parser instead of the object itself for the fields selected with
+ * {@link DBTable#selectLazyTable(DBTable, String, boolean, String) selectLazyTable}. The first call to {@link #get()} loads the object for this
+ * placeholder and for all the other placeholders of the same result not loaded yet, with a single query.
+ *
+ * @param <T> model object joined lazily
+ */
+public final class LazyRelation<T> {
+
+    private final String key;
+    private final LazyLoader<T> loader;
+    private T value;
+    private volatile boolean isLoaded;
+
+    LazyRelation(String key, LazyLoader<T> loader) {
+        this.key = key;
+        this.loader = loader;
+        isLoaded = (key == null);
+    }
+
+    /**
+     * Return the joined model object, loading it if needed
+     *
+     * @return The joined model object, or null if there is none
+     */
+    public T get() {
+        if (!isLoaded) {
+            loader.load();
+        }
+        return value;
+    }
+
+    /**
+     * Check if the joined model object has already been loaded
+     *
+     * @return true if {@link #get()} won't query the database
+     */
+    public boolean isLoaded() {
+        return isLoaded;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    void setLoaded(List<T> values) {
+        value = values.isEmpty() ? null : values.get(0);
+        isLoaded = true;
+    }
+}
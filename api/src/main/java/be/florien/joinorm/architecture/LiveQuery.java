@@ -0,0 +1,302 @@
+package be.florien.joinorm.architecture;
+
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query executed again each time one of the tables of its join tree is changed, as notified by {@link TableChangeNotifier}. The changes
+ * notified within the debounce window following a first change are coalesced into one execution, which happens at the end of the window.
+ * <p>
+ * A LiveQuery created with a {@link ChangeSetObserver} keeps its last results, ordered by ID. When the changes notified concern only the
+ * queried table and their IDs are known, it queries again only the objects with these IDs, splices them into its results and gives the
+ * resulting {@link ChangeSet} to the observer. This isn't possible if the queried table is also joined in its own tree, as the objects
+ * containing a changed row wouldn't be queried again. Any other change queries everything again, and the change set is computed by ID
+ * and {@link Object#equals(Object) equals}: an object equal to the current one with the same ID isn't reported as updated.
+ * <p>
+ * The executions and the calls to the observer happen on a thread shared by all the LiveQuery.
+ *
+ * @param <T> model object representing the queried table
+ */
+public final class LiveQuery<T> {
+
+    /*
+     * FIELDS
+     */
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "JoinOrm live query");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final DBQuery<T> query;
+    private final SQLiteOpenHelper openHelper;
+    private final ResultObserver<T> observer;
+    private final ChangeSetObserver<T> changeSetObserver;
+    private final long debounceMillis;
+    private final Set<String> tableNames;
+    private final boolean isQueriedTableUnique;
+    private final TableChangeListener listener;
+    private final Runnable execution;
+    private ScheduledFuture<?> pendingExecution = null;
+    private boolean isStarted = false;
+    private Set<Integer> pendingIds = new HashSet<>();
+    private boolean isFullRefreshPending = true;
+    private final List<T> currentResults = new ArrayList<>();
+    private final List<Integer> currentIds = new ArrayList<>();
+    private ResultSnapshot<T> snapshot = null;
+    private long snapshotVersion;
+    private boolean isSnapshotPending = false;
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    /**
+     * Constructs a new LiveQuery, which doesn't query before {@link #start()} is called.
+     *
+     * @param query          The query to execute
+     * @param openHelper     The helper providing access to the database to query and listen to
+     * @param observer       The observer receiving each result
+     * @param debounceMillis The window, in milliseconds, during which the changes following a first one are coalesced
+     */
+    public LiveQuery(DBQuery<T> query, SQLiteOpenHelper openHelper, ResultObserver<T> observer, long debounceMillis) {
+        this(query, openHelper, observer, null, debounceMillis);
+    }
+
+    /**
+     * Constructs a new LiveQuery refreshed incrementally, which doesn't query before {@link #start()} is called. The ID of the queried table
+     * must be a single column.
+     *
+     * @param query          The query to execute
+     * @param openHelper     The helper providing access to the database to query and listen to
+     * @param observer       The observer receiving each change set
+     * @param debounceMillis The window, in milliseconds, during which the changes following a first one are coalesced
+     */
+    public LiveQuery(DBQuery<T> query, SQLiteOpenHelper openHelper, ChangeSetObserver<T> observer, long debounceMillis) {
+        this(query, openHelper, null, observer, debounceMillis);
+    }
+
+    private LiveQuery(DBQuery<T> query, SQLiteOpenHelper openHelper, ResultObserver<T> observer, ChangeSetObserver<T> changeSetObserver, long debounceMillis) {
+        this.query = query;
+        this.openHelper = openHelper;
+        this.observer = observer;
+        this.changeSetObserver = changeSetObserver;
+        this.debounceMillis = debounceMillis;
+        List<String> queriedTables = new ArrayList<>();
+        query.collectTableNames(queriedTables);
+        tableNames = Collections.unmodifiableSet(new HashSet<>(queriedTables));
+        isQueriedTableUnique = Collections.frequency(queriedTables, query.getTableName()) == 1;
+        listener = new TableChangeListener() {
+            @Override
+            public void onTablesChanged(Map<String, Set<Integer>> changedTables) {
+                onChange(changedTables);
+            }
+        };
+        execution = new Runnable() {
+            @Override
+            public void run() {
+                execute();
+            }
+        };
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Keep the results of this query in a snapshot. When started, the results read from the snapshot are given to the observer before the
+     * query is executed, and the snapshot is written again after each execution.
+     *
+     * @param snapshot    The snapshot of the results of this query
+     * @param dataVersion The stamp of the current data, for which the snapshot must have been written
+     * @return This LiveQuery
+     */
+    public synchronized LiveQuery<T> setSnapshot(ResultSnapshot<T> snapshot, long dataVersion) {
+        this.snapshot = snapshot;
+        snapshotVersion = dataVersion;
+        return this;
+    }
+
+    /**
+     * Start listening to the changes of the database and execute the query a first time
+     */
+    public synchronized void start() {
+        if (!isStarted) {
+            isStarted = true;
+            isFullRefreshPending = true;
+            isSnapshotPending = snapshot != null;
+            TableChangeNotifier.addListener(openHelper, listener);
+            scheduleExecution(0);
+        }
+    }
+
+    /**
+     * Stop listening to the changes of the database. An execution already running still gives its result to the observer.
+     */
+    public synchronized void stop() {
+        if (isStarted) {
+            isStarted = false;
+            TableChangeNotifier.removeListener(openHelper, listener);
+            if (pendingExecution != null) {
+                pendingExecution.cancel(false);
+                pendingExecution = null;
+            }
+        }
+    }
+
+    /**
+     * Return the names of the tables whose changes make this query execute again
+     *
+     * @return The names of the tables of the join tree, as in the database
+     */
+    public Set<String> getTableNames() {
+        return tableNames;
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    private synchronized void onChange(Map<String, Set<Integer>> changedTables) {
+        boolean isConcerned = false;
+        for (Map.Entry<String, Set<Integer>> changedTable : changedTables.entrySet()) {
+            if (tableNames.contains(changedTable.getKey())) {
+                isConcerned = true;
+                if (changeSetObserver != null && isQueriedTableUnique && changedTable.getKey().equals(query.getTableName())
+                        && changedTable.getValue() != null) {
+                    pendingIds.addAll(changedTable.getValue());
+                } else {
+                    isFullRefreshPending = true;
+                }
+            }
+        }
+        if (isConcerned) {
+            scheduleExecution(debounceMillis);
+        }
+    }
+
+    private synchronized void scheduleExecution(long delayMillis) {
+        if (isStarted && pendingExecution == null) {
+            pendingExecution = executor.schedule(execution, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void execute() {
+        Set<Integer> changedIds;
+        boolean isFullRefresh;
+        boolean isReadingSnapshot;
+        synchronized (this) {
+            if (!isStarted) {
+                return;
+            }
+            pendingExecution = null;
+            changedIds = pendingIds;
+            pendingIds = new HashSet<>();
+            isFullRefresh = isFullRefreshPending;
+            isFullRefreshPending = false;
+            isReadingSnapshot = isSnapshotPending;
+            isSnapshotPending = false;
+        }
+        try {
+            if (isReadingSnapshot) {
+                deliverSnapshot();
+            }
+            if (changeSetObserver == null) {
+                List<T> results = query.getResult(openHelper);
+                observer.onResult(results);
+                writeSnapshot(results);
+            } else if (isFullRefresh) {
+                List<T> results = query.getResult(openHelper);
+                changedIds.addAll(currentIds);
+                for (T result : results) {
+                    changedIds.add(query.getIdValue(result));
+                }
+                changeSetObserver.onChanged(splice(changedIds, results, true));
+                writeSnapshot(currentResults);
+            } else {
+                changeSetObserver.onChanged(splice(changedIds, query.getResultForIds(openHelper, changedIds), false));
+                writeSnapshot(currentResults);
+            }
+        } catch (RuntimeException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Give the results read from the snapshot to the observer, as the current results
+     */
+    private void deliverSnapshot() {
+        List<T> results = snapshot.read(snapshotVersion);
+        if (results == null) {
+            return;
+        }
+        if (changeSetObserver == null) {
+            observer.onResult(results);
+        } else {
+            Set<Integer> ids = new HashSet<>();
+            for (T result : results) {
+                ids.add(query.getIdValue(result));
+            }
+            changeSetObserver.onChanged(splice(ids, results, false));
+        }
+    }
+
+    private void writeSnapshot(List<T> results) {
+        if (snapshot != null) {
+            snapshot.write(results, snapshotVersion);
+        }
+    }
+
+    /**
+     * Replace, insert or remove in the current results the objects with the IDs changed
+     *
+     * @param changedIds  The IDs queried again
+     * @param refreshed   The objects returned by the query for these IDs
+     * @param isComparing Whether an object equal to the current one is kept instead of being reported as updated
+     * @return The changes made to the current results
+     */
+    private ChangeSet<T> splice(Set<Integer> changedIds, List<T> refreshed, boolean isComparing) {
+        Map<Integer, T> refreshedById = new HashMap<>();
+        for (T object : refreshed) {
+            refreshedById.put(query.getIdValue(object), object);
+        }
+        List<Integer> sortedIds = new ArrayList<>(changedIds);
+        Collections.sort(sortedIds);
+        List<T> inserted = new ArrayList<>();
+        List<T> updated = new ArrayList<>();
+        List<T> deleted = new ArrayList<>();
+        for (Integer id : sortedIds) {
+            int position = Collections.binarySearch(currentIds, id);
+            T object = refreshedById.get(id);
+            if (position >= 0 && object == null) {
+                deleted.add(currentResults.remove(position));
+                currentIds.remove(position);
+            } else if (position >= 0 && !(isComparing && object.equals(currentResults.get(position)))) {
+                currentResults.set(position, object);
+                updated.add(object);
+            } else if (position < 0 && object != null) {
+                currentResults.add(-position - 1, object);
+                currentIds.add(-position - 1, id);
+                inserted.add(object);
+            }
+        }
+        return new ChangeSet<>(new ArrayList<>(currentResults), inserted, updated, deleted);
+    }
+}
@@ -0,0 +1,392 @@
+package be.florien.joinorm.architecture;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Forward-only Cursor reading the rows of another Cursor on a separate thread. The producer thread steps through the wrapped Cursor and
+ * copies the values of its rows into batches of fixed size, which are handed to the thread reading this Cursor through a bounded queue and
+ * given back once read. Fetching the rows from SQLite and parsing them thus happen at the same time.
+ * <p>
+ * Only the moves forward are supported, and the number of rows is not known until the last one is read.
+ */
+class PipelinedCursor extends CursorWrapper {
+
+    /*
+     * CONSTANTS
+     */
+
+    private static final RowBatch END_OF_ROWS = new RowBatch(0, 0);
+
+    /*
+     * FIELDS
+     */
+
+    private final BlockingQueue<RowBatch> filledBatches;
+    private final BlockingQueue<RowBatch> freeBatches;
+    private final Thread producer;
+    private volatile boolean isClosed = false;
+    private volatile RuntimeException producerException = null;
+    private RowBatch currentBatch = null;
+    private int rowInBatch = -1;
+    private int position = -1;
+    private boolean isAfterLast = false;
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    /**
+     * Constructs a new PipelinedCursor and start reading the wrapped Cursor. The wrapped Cursor must not be used anymore by the caller.
+     *
+     * @param cursor     The Cursor to read
+     * @param batchSize  The number of rows in each batch
+     * @param batchCount The number of batches, which is also the maximum number of batches read in advance
+     */
+    PipelinedCursor(final Cursor cursor, int batchSize, int batchCount) {
+        super(cursor);
+        int columnCount = cursor.getColumnCount();
+        filledBatches = new ArrayBlockingQueue<>(batchCount + 1);
+        freeBatches = new ArrayBlockingQueue<>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            freeBatches.add(new RowBatch(batchSize, columnCount));
+        }
+        producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                produce(cursor);
+            }
+        }, "JoinOrm pipeline");
+        producer.start();
+    }
+
+    /*
+     * OVERRIDDEN METHODS
+     */
+
+    @Override
+    public int getCount() {
+        throw new UnsupportedOperationException("The number of rows of a PipelinedCursor is unknown");
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean moveToNext() {
+        if (isAfterLast) {
+            return false;
+        }
+        rowInBatch++;
+        if (currentBatch == null || rowInBatch >= currentBatch.rowCount) {
+            if (currentBatch != null) {
+                freeBatches.offer(currentBatch);
+            }
+            currentBatch = takeFilledBatch();
+            rowInBatch = 0;
+            if (currentBatch == END_OF_ROWS) {
+                currentBatch = null;
+                isAfterLast = true;
+                position++;
+                if (producerException != null) {
+                    throw producerException;
+                }
+                return false;
+            }
+        }
+        position++;
+        return true;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        if (position == -1) {
+            return moveToNext();
+        }
+        if (position == 0) {
+            return !isAfterLast;
+        }
+        throw new UnsupportedOperationException("A PipelinedCursor can only move forward");
+    }
+
+    @Override
+    public boolean moveToPosition(int newPosition) {
+        if (newPosition < position) {
+            throw new UnsupportedOperationException("A PipelinedCursor can only move forward");
+        }
+        boolean isOnRow = !isAfterLast && position >= 0;
+        while (position < newPosition && (isOnRow = moveToNext())) {
+            // moving forward
+        }
+        return isOnRow;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(position + offset);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        throw new UnsupportedOperationException("The last row of a PipelinedCursor is unknown");
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        throw new UnsupportedOperationException("A PipelinedCursor can only move forward");
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return position == -1;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return isAfterLast;
+    }
+
+    @Override
+    public boolean isFirst() {
+        return position == 0 && !isAfterLast;
+    }
+
+    @Override
+    public boolean isLast() {
+        throw new UnsupportedOperationException("The last row of a PipelinedCursor is unknown");
+    }
+
+    @Override
+    public int getType(int columnIndex) {
+        return getBatch().getType(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return getType(columnIndex) == FIELD_TYPE_NULL;
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getBatch().getLong(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public short getShort(int columnIndex) {
+        return (short) getBatch().getLong(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        return getBatch().getLong(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return (float) getBatch().getDouble(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        return getBatch().getDouble(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        return getBatch().getString(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        return getBatch().getBlob(rowInBatch, columnIndex);
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        super.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    private void produce(Cursor cursor) {
+        RowBatch batch = null;
+        try {
+            while (!isClosed && cursor.moveToNext()) {
+                if (batch == null) {
+                    batch = freeBatches.take();
+                    batch.rowCount = 0;
+                }
+                batch.copyRow(cursor);
+                if (batch.rowCount == batch.capacity) {
+                    filledBatches.put(batch);
+                    batch = null;
+                }
+            }
+            if (batch != null) {
+                filledBatches.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            producerException = e;
+        } finally {
+            filledBatches.offer(END_OF_ROWS);
+        }
+    }
+
+    private RowBatch takeFilledBatch() {
+        try {
+            return filledBatches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBArchitectureException("Interrupted while waiting for the rows to be read", e);
+        }
+    }
+
+    private RowBatch getBatch() {
+        if (currentBatch == null) {
+            throw new IllegalStateException("The PipelinedCursor is not positioned on a row");
+        }
+        return currentBatch;
+    }
+
+    /*
+     * INNER CLASSES
+     */
+
+    /**
+     * Values of a fixed number of rows, stored by type. The same batches are filled again once read.
+     */
+    private static class RowBatch {
+
+        private final int capacity;
+        private final int columnCount;
+        private final int[] types;
+        private final long[] longs;
+        private final double[] doubles;
+        private final Object[] objects;
+        private int rowCount;
+
+        RowBatch(int capacity, int columnCount) {
+            this.capacity = capacity;
+            this.columnCount = columnCount;
+            types = new int[capacity * columnCount];
+            longs = new long[capacity * columnCount];
+            doubles = new double[capacity * columnCount];
+            objects = new Object[capacity * columnCount];
+        }
+
+        void copyRow(Cursor cursor) {
+            int cell = rowCount * columnCount;
+            for (int column = 0; column < columnCount; column++, cell++) {
+                int type = cursor.getType(column);
+                types[cell] = type;
+                objects[cell] = null;
+                switch (type) {
+                    case FIELD_TYPE_INTEGER:
+                        longs[cell] = cursor.getLong(column);
+                        break;
+                    case FIELD_TYPE_FLOAT:
+                        doubles[cell] = cursor.getDouble(column);
+                        break;
+                    case FIELD_TYPE_STRING:
+                        objects[cell] = cursor.getString(column);
+                        break;
+                    case FIELD_TYPE_BLOB:
+                        objects[cell] = cursor.getBlob(column);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            rowCount++;
+        }
+
+        int getType(int row, int column) {
+            return types[row * columnCount + column];
+        }
+
+        long getLong(int row, int column) {
+            int cell = row * columnCount + column;
+            switch (types[cell]) {
+                case FIELD_TYPE_INTEGER:
+                    return longs[cell];
+                case FIELD_TYPE_FLOAT:
+                    return (long) doubles[cell];
+                case FIELD_TYPE_STRING:
+                    try {
+                        return Long.parseLong((String) objects[cell]);
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                default:
+                    return 0;
+            }
+        }
+
+        double getDouble(int row, int column) {
+            int cell = row * columnCount + column;
+            switch (types[cell]) {
+                case FIELD_TYPE_INTEGER:
+                    return longs[cell];
+                case FIELD_TYPE_FLOAT:
+                    return doubles[cell];
+                case FIELD_TYPE_STRING:
+                    try {
+                        return Double.parseDouble((String) objects[cell]);
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                default:
+                    return 0;
+            }
+        }
+
+        String getString(int row, int column) {
+            int cell = row * columnCount + column;
+            switch (types[cell]) {
+                case FIELD_TYPE_INTEGER:
+                    return Long.toString(longs[cell]);
+                case FIELD_TYPE_FLOAT:
+                    return Double.toString(doubles[cell]);
+                case FIELD_TYPE_STRING:
+                    return (String) objects[cell];
+                case FIELD_TYPE_BLOB:
+                    throw new DBArchitectureException(new IllegalStateException("Unable to convert BLOB to string"));
+                default:
+                    return null;
+            }
+        }
+
+        byte[] getBlob(int row, int column) {
+            int cell = row * columnCount + column;
+            switch (types[cell]) {
+                case FIELD_TYPE_BLOB:
+                    return (byte[]) objects[cell];
+                case FIELD_TYPE_NULL:
+                    return null;
+                default:
+                    throw new DBArchitectureException(new IllegalStateException("Unable to convert a value to BLOB"));
+            }
+        }
+    }
+}
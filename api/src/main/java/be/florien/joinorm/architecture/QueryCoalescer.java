@@ -0,0 +1,95 @@
+package be.florien.joinorm.architecture;
+
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesce identical queries executed at the same time: while a query is running, the other threads asking for a query with the same sql
+ * wait for it and receive its result instead of querying and parsing again. Once the query is finished, the next request executes it
+ * again.
+ * <p>
+ * By default, all the threads receive the same list, which must then not be modified. They can ask for their own copy of the objects
+ * instead.
+ */
+public class QueryCoalescer {
+
+    /*
+     * FIELDS
+     */
+
+    private final ConcurrentMap<String, FutureTask<List<?>>> runningQueries = new ConcurrentHashMap<>();
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Parse and return the complete list of object corresponding to the table, or wait for the same query already running and return its
+     * result.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param table      The table to query, which is compiled by this method
+     * @param isCopying  If true and the result comes from another thread's query, return copies of the objects
+     * @return The list of results
+     */
+    public <T> List<T> getResult(SQLiteOpenHelper openHelper, DBTable<T> table, boolean isCopying) {
+        return getResult(openHelper, table.compile(), isCopying);
+    }
+
+    /**
+     * Parse and return the complete list of object corresponding to the query, or wait for the same query already running and return its
+     * result.
+     *
+     * @param openHelper The helper providing access to the database to query
+     * @param query      The query to execute
+     * @param isCopying  If true and the result comes from another thread's query, return copies of the objects
+     * @return The list of results
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getResult(final SQLiteOpenHelper openHelper, final DBQuery<T> query, boolean isCopying) {
+        String key = query.getKey();
+        FutureTask<List<?>> newQuery = new FutureTask<>(new Callable<List<?>>() {
+            @Override
+            public List<?> call() throws Exception {
+                return query.getResult(openHelper);
+            }
+        });
+        FutureTask<List<?>> runningQuery = runningQueries.putIfAbsent(key, newQuery);
+        boolean isExecuting = (runningQuery == null);
+        if (isExecuting) {
+            runningQuery = newQuery;
+            try {
+                newQuery.run();
+            } finally {
+                runningQueries.remove(key, newQuery);
+            }
+        }
+
+        List<T> result = (List<T>) waitForResult(runningQuery);
+        return isCopying && !isExecuting ? query.copyResult(result) : result;
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    private List<?> waitForResult(FutureTask<List<?>> runningQuery) {
+        try {
+            return runningQuery.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBArchitectureException("Interrupted while waiting for the same query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DBArchitectureException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package be.florien.joinorm.architecture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Query recorded by the {@link IndexAdvisor}, with the result of its EXPLAIN QUERY PLAN and the time spent executing it.
+ */
+public class QueryShape {
+
+    private final String sql;
+    private final List<IndexSuggestion> candidates;
+    private final List<IndexSuggestion> orderCandidates;
+    private final List<String> queryPlan = new ArrayList<>();
+    private final Set<String> scannedTables = new HashSet<>();
+    private boolean isUsingTempBTree = false;
+    private int executionCount = 0;
+    private long totalTimeNanos = 0;
+
+    QueryShape(String sql, List<IndexSuggestion> candidates, List<IndexSuggestion> orderCandidates) {
+        this.sql = sql;
+        this.candidates = candidates;
+        this.orderCandidates = orderCandidates;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Return the detail of each step of the query plan, as given by EXPLAIN QUERY PLAN
+     *
+     * @return The steps of the query plan
+     */
+    public List<String> getQueryPlan() {
+        return Collections.unmodifiableList(queryPlan);
+    }
+
+    /**
+     * Return the names of the tables read entirely by the query, or through an automatic index built for the query
+     *
+     * @return The names of the scanned tables
+     */
+    public Set<String> getScannedTables() {
+        return Collections.unmodifiableSet(scannedTables);
+    }
+
+    /**
+     * Check if the query sort its rows in a temporary B-tree to apply its ORDER BY
+     *
+     * @return true if the query plan use a temp B-tree
+     */
+    public boolean isUsingTempBTree() {
+        return isUsingTempBTree;
+    }
+
+    public int getExecutionCount() {
+        return executionCount;
+    }
+
+    public long getTotalTimeNanos() {
+        return totalTimeNanos;
+    }
+
+    List<IndexSuggestion> getCandidates() {
+        return candidates;
+    }
+
+    List<IndexSuggestion> getOrderCandidates() {
+        return orderCandidates;
+    }
+
+    void addPlanStep(String detail, String tableName) {
+        queryPlan.add(detail);
+        if (detail.contains("TEMP B-TREE FOR") && detail.endsWith("ORDER BY")) {
+            isUsingTempBTree = true;
+        }
+        if (tableName != null) {
+            scannedTables.add(tableName);
+        }
+    }
+
+    /**
+     * Check if an index on the table could improve the filtering or the joins of this query. The indexes on the ordering columns only
+     * improve it when it sorts with a temp B-tree, see {@link #isUsingTempBTree()}.
+     *
+     * @param tableName The name of the table
+     * @return true if the table is scanned
+     */
+    boolean isImprovableBy(String tableName) {
+        return scannedTables.contains(tableName);
+    }
+
+    void addExecution(long timeNanos) {
+        executionCount++;
+        totalTimeNanos += timeNanos;
+    }
+}
@@ -0,0 +1,18 @@
+package be.florien.joinorm.architecture;
+
+import java.util.List;
+
+/**
+ * Callback receiving the results of a {@link LiveQuery} each time they are queried again.
+ *
+ * @param <T> model object representing the table
+ */
+public interface ResultObserver<T> {
+
+    /**
+     * Called on the LiveQuery thread with the complete new result of the query.
+     *
+     * @param results The list of results
+     */
+    void onResult(List<T> results);
+}
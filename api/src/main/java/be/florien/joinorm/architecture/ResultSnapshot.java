@@ -0,0 +1,255 @@
+package be.florien.joinorm.architecture;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary file holding the results of a {@link DBQuery}, to serve them at startup before the query is executed. The file is tagged with the
+ * key of the query and a data version stamp given by the caller, and is read through a memory-mapped ByteBuffer. A file written for another
+ * query or another stamp is ignored.
+ * <p>
+ * The objects are written as selected by the query definition: the primitive fields, and the inner tables as single objects or lists. The
+ * fields of lazy tables are not written, and are null in the objects read.
+ *
+ * @param <T> model object representing the queried table
+ */
+public final class ResultSnapshot<T> {
+
+    /*
+     * CONSTANTS
+     */
+
+    private static final int MAGIC = 0x4A4F534E;
+    private static final int FORMAT_VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_DOUBLE = 2;
+    private static final byte TAG_BOOLEAN = 3;
+    private static final byte TAG_STRING = 4;
+    private static final byte TAG_OBJECT = 5;
+    private static final byte TAG_LIST = 6;
+
+    /*
+     * FIELDS
+     */
+
+    private final DBQuery<T> query;
+    private final File file;
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    /**
+     * Constructs a new ResultSnapshot
+     *
+     * @param query The query whose results are kept
+     * @param file  The file holding the results
+     */
+    public ResultSnapshot(DBQuery<T> query, File file) {
+        this.query = query;
+        this.file = file;
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Write the results in the file, replacing the previous ones once they are completely written
+     *
+     * @param results     The results of the query
+     * @param dataVersion The stamp of the data the results come from
+     */
+    public synchronized void write(List<T> results, long dataVersion) {
+        DBTable<T> definition = query.newParseContext();
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(dataVersion);
+                writeString(output, query.getKey());
+                output.writeInt(results.size());
+                for (T result : results) {
+                    writeObject(output, definition, result);
+                }
+            } finally {
+                output.close();
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not replace the snapshot " + file.getPath());
+            }
+        } catch (IOException | IllegalAccessException exception) {
+            tempFile.delete();
+            throw new DBArchitectureException("Could not write the snapshot " + file.getPath(), exception);
+        }
+    }
+
+    /**
+     * Read the results kept in the file
+     *
+     * @param dataVersion The stamp of the current data
+     * @return The results, or null if there is no file, or if it was written for another query or another stamp
+     */
+    public synchronized List<T> read(long dataVersion) {
+        if (!file.exists()) {
+            return null;
+        }
+        DBTable<T> definition = query.newParseContext();
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                ByteBuffer input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (input.getInt() != MAGIC || input.getInt() != FORMAT_VERSION || input.getLong() != dataVersion
+                        || !query.getKey().equals(readString(input))) {
+                    return null;
+                }
+                int size = readCount(input);
+                List<T> results = new ArrayList<>(Math.min(size, input.remaining()));
+                for (int i = 0; i < size; i++) {
+                    results.add(readObject(input, definition));
+                }
+                return results;
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | IllegalAccessException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Delete the file
+     */
+    public synchronized void delete() {
+        file.delete();
+    }
+
+    /*
+     * PRIVATE METHODS
+     */
+
+    private static <M> void writeObject(DataOutputStream output, DBTable<M> table, Object object) throws IOException, IllegalAccessException {
+        for (DBPrimitiveField<?> primitive : table.getPrimitiveQueries()) {
+            writeValue(output, table.getModelField(primitive).get(object));
+        }
+        for (DBTable<?> innerTable : table.getTableQueries()) {
+            Object value = table.getModelField(innerTable).get(object);
+            if (value == null) {
+                output.writeByte(TAG_NULL);
+            } else if (value instanceof List) {
+                output.writeByte(TAG_LIST);
+                output.writeInt(((List<?>) value).size());
+                for (Object element : (List<?>) value) {
+                    writeObject(output, innerTable, element);
+                }
+            } else {
+                output.writeByte(TAG_OBJECT);
+                writeObject(output, innerTable, value);
+            }
+        }
+    }
+
+    private static <M> M readObject(ByteBuffer input, DBTable<M> table) throws IllegalAccessException {
+        M object = table.newModelObject();
+        for (DBPrimitiveField<?> primitive : table.getPrimitiveQueries()) {
+            Object value = readValue(input);
+            Field field = table.getModelField(primitive);
+            if (value != null || !field.getType().isPrimitive()) {
+                field.set(object, value);
+            }
+        }
+        for (DBTable<?> innerTable : table.getTableQueries()) {
+            byte tag = input.get();
+            Field field = table.getModelField(innerTable);
+            if (tag == TAG_LIST) {
+                int size = readCount(input);
+                List<Object> list = new ArrayList<>(Math.min(size, input.remaining()));
+                for (int i = 0; i < size; i++) {
+                    list.add(readObject(input, innerTable));
+                }
+                field.set(object, list);
+            } else if (tag == TAG_OBJECT) {
+                field.set(object, readObject(input, innerTable));
+            }
+        }
+        return object;
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof Integer) {
+            output.writeByte(TAG_INT);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            output.writeByte(TAG_DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(TAG_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else {
+            output.writeByte(TAG_STRING);
+            writeString(output, value.toString());
+        }
+    }
+
+    private static Object readValue(ByteBuffer input) {
+        switch (input.get()) {
+            case TAG_INT:
+                return input.getInt();
+            case TAG_DOUBLE:
+                return input.getDouble();
+            case TAG_BOOLEAN:
+                return input.get() != 0;
+            case TAG_STRING:
+                return readString(input);
+            default:
+                return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer input) {
+        int length = readCount(input);
+        if (length > input.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Read a count written before a string or a list. A negative count, only found in a corrupted file, is reported as the end of the
+     * file, so that the file is ignored instead of failing on the allocation.
+     */
+    private static int readCount(ByteBuffer input) {
+        int count = input.getInt();
+        if (count < 0) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+}
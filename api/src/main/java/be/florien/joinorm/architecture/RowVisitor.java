@@ -0,0 +1,18 @@
+package be.florien.joinorm.architecture;
+
+/**
+ * Callback receiving the model objects parsed by {@link DBTable#forEach(android.database.sqlite.SQLiteOpenHelper, RowVisitor) forEach}, one
+ * at a time.
+ *
+ * @param <T> model object representing the table
+ */
+public interface RowVisitor<T> {
+
+    /**
+     * Called for each complete model object. The object and everything it contains are reused for the next one, so they must not be kept
+     * after this method returns.
+     *
+     * @param object The complete model object
+     */
+    void visit(T object);
+}
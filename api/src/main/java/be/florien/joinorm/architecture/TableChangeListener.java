@@ -0,0 +1,18 @@
+package be.florien.joinorm.architecture;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Callback receiving the tables changed in a database, as published by {@link TableChangeNotifier}.
+ */
+public interface TableChangeListener {
+
+    /**
+     * Called after a change in the database is committed, on the thread which made the change.
+     *
+     * @param changedTables The names of the tables changed, as in the database, with the IDs of the rows changed in each, or null if they are
+     *                      unknown
+     */
+    void onTablesChanged(Map<String, Set<Integer>> changedTables);
+}
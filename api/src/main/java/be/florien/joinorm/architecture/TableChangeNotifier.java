@@ -0,0 +1,139 @@
+package be.florien.joinorm.architecture;
+
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publish the tables changed in a database to the {@link TableChangeListener} registered for it. {@link DBTable#writeAll} and
+ * {@link DBTable#deleteAll} notify their changes once their transaction is committed, with the IDs of the rows changed when the table ID
+ * is a single column. The other writers of the database must call {@link #notifyTablesChanged(SQLiteOpenHelper, Collection)} or
+ * {@link #notifyRowsChanged(SQLiteOpenHelper, String, Collection)} themselves.
+ */
+public final class TableChangeNotifier {
+
+    /*
+     * FIELDS
+     */
+
+    private static final ConcurrentMap<SQLiteOpenHelper, List<TableChangeListener>> listeners = new ConcurrentHashMap<>();
+
+    /*
+     * CONSTRUCTOR
+     */
+
+    private TableChangeNotifier() {
+    }
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Register a listener for the changes made in the database of openHelper
+     *
+     * @param openHelper The helper providing access to the database to listen to
+     * @param listener   The listener to register
+     */
+    public static void addListener(SQLiteOpenHelper openHelper, TableChangeListener listener) {
+        List<TableChangeListener> newListeners = new CopyOnWriteArrayList<>();
+        List<TableChangeListener> databaseListeners = listeners.putIfAbsent(openHelper, newListeners);
+        (databaseListeners == null ? newListeners : databaseListeners).add(listener);
+    }
+
+    /**
+     * Unregister a listener previously given to {@link #addListener(SQLiteOpenHelper, TableChangeListener)}
+     *
+     * @param openHelper The helper providing access to the database listened to
+     * @param listener   The listener to unregister
+     */
+    public static void removeListener(SQLiteOpenHelper openHelper, TableChangeListener listener) {
+        List<TableChangeListener> databaseListeners = listeners.get(openHelper);
+        if (databaseListeners != null) {
+            databaseListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Notify the listeners of the database that tables were changed. Must be called after the changes are committed.
+     *
+     * @param openHelper The helper providing access to the database changed
+     * @param tableNames The names of the tables changed, as in the database
+     */
+    public static void notifyTablesChanged(SQLiteOpenHelper openHelper, Collection<String> tableNames) {
+        Map<String, Set<Integer>> changedTables = new HashMap<>();
+        for (String tableName : tableNames) {
+            addChange(changedTables, tableName, null);
+        }
+        notifyChanges(openHelper, changedTables);
+    }
+
+    /**
+     * Notify the listeners of the database that rows of a table were changed. Must be called after the changes are committed.
+     *
+     * @param openHelper The helper providing access to the database changed
+     * @param tableName  The name of the table changed, as in the database
+     * @param ids        The IDs of the rows inserted, updated or deleted
+     */
+    public static void notifyRowsChanged(SQLiteOpenHelper openHelper, String tableName, Collection<Integer> ids) {
+        Map<String, Set<Integer>> changedTables = new HashMap<>();
+        for (Integer id : ids) {
+            addChange(changedTables, tableName, id);
+        }
+        notifyChanges(openHelper, changedTables);
+    }
+
+    /*
+     * PACKAGE METHODS
+     */
+
+    /**
+     * Add a change to a map of changed tables, which can then be given to {@link #notifyChanges(SQLiteOpenHelper, Map)}. Once a change with
+     * an unknown ID is added for a table, all its IDs are considered unknown.
+     *
+     * @param changedTables The map of changed tables to populate
+     * @param tableName     The name of the table changed, as in the database
+     * @param id            The ID of the row changed, or null if it's unknown
+     */
+    static void addChange(Map<String, Set<Integer>> changedTables, String tableName, Integer id) {
+        if (id == null) {
+            changedTables.put(tableName, null);
+        } else if (!changedTables.containsKey(tableName)) {
+            Set<Integer> ids = new HashSet<>();
+            ids.add(id);
+            changedTables.put(tableName, ids);
+        } else if (changedTables.get(tableName) != null) {
+            changedTables.get(tableName).add(id);
+        }
+    }
+
+    /**
+     * Notify the listeners of the database of the changes collected by {@link #addChange(Map, String, Integer)}
+     *
+     * @param openHelper    The helper providing access to the database changed
+     * @param changedTables The tables changed, with the IDs of the rows changed or null
+     */
+    static void notifyChanges(SQLiteOpenHelper openHelper, Map<String, Set<Integer>> changedTables) {
+        List<TableChangeListener> databaseListeners = listeners.get(openHelper);
+        if (databaseListeners == null || changedTables.isEmpty()) {
+            return;
+        }
+        Map<String, Set<Integer>> publishedTables = new HashMap<>();
+        for (Map.Entry<String, Set<Integer>> changedTable : changedTables.entrySet()) {
+            publishedTables.put(changedTable.getKey(), changedTable.getValue() == null ? null : Collections.unmodifiableSet(changedTable.getValue()));
+        }
+        publishedTables = Collections.unmodifiableMap(publishedTables);
+        for (TableChangeListener listener : databaseListeners) {
+            listener.onTablesChanged(publishedTables);
+        }
+    }
+}
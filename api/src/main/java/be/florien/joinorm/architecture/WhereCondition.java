@@ -11,7 +11,8 @@ public enum WhereCondition {
     MORE_EQUAL(" >= "),
     IN(" IN "),
     BETWEEN(" BETWEEN "),
-    LIKE(" LIKE ");
+    LIKE(" LIKE "),
+    NOT_IN(" NOT IN ");
     private String condition;
 
     private WhereCondition(String condition) {
@@ -1,13 +1,25 @@
 package be.florien.joinorm.architecture;
 
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 public class WhereStatement implements Parcelable {
+    /**
+     * Number of values of an IN statement above which they are loaded in a temporary table instead of being bound as parameters
+     */
+    public static final int MAX_BOUND_VALUES = 256;
+
     private String columnName;
     private String value;
     private WhereCondition condition;
     private boolean isOr = false;
+    private long[] numericValues;
+    private String[] textValues;
 
     public static final Parcelable.Creator<WhereStatement> CREATOR = new Creator<WhereStatement>() {
 
@@ -27,6 +39,8 @@ public class WhereStatement implements Parcelable {
         value = in.readString();
         condition = WhereCondition.values()[in.readInt()];
         isOr = (in.readInt() == 1);
+        numericValues = in.createLongArray();
+        textValues = in.createStringArray();
     }
 
     public WhereStatement(String columnName, boolean isNull) {
@@ -66,13 +80,204 @@ public class WhereStatement implements Parcelable {
         condition = WhereCondition.EQUAL;
     }
 
+    /**
+     * Constructs a new IN or NOT IN statement on a set of integers
+     *
+     * @param columnName The name of the column
+     * @param values     The values to look for
+     * @param isIn       True for IN, false for NOT IN
+     */
+    public WhereStatement(String columnName, int[] values, boolean isIn) {
+        this.columnName = columnName;
+        numericValues = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            numericValues[i] = values[i];
+        }
+        condition = isIn ? WhereCondition.IN : WhereCondition.NOT_IN;
+    }
+
+    /**
+     * Constructs a new IN or NOT IN statement on a set of longs
+     *
+     * @param columnName The name of the column
+     * @param values     The values to look for
+     * @param isIn       True for IN, false for NOT IN
+     */
+    public WhereStatement(String columnName, long[] values, boolean isIn) {
+        this.columnName = columnName;
+        numericValues = values.clone();
+        condition = isIn ? WhereCondition.IN : WhereCondition.NOT_IN;
+    }
+
+    /**
+     * Constructs a new IN or NOT IN statement on a set of strings
+     *
+     * @param columnName The name of the column
+     * @param values     The values to look for, which can't be null: SQL never finds NULL in a set of values
+     * @param isIn       True for IN, false for NOT IN
+     */
+    public WhereStatement(String columnName, Collection<String> values, boolean isIn) {
+        this.columnName = columnName;
+        textValues = values.toArray(new String[values.size()]);
+        for (String textValue : textValues) {
+            if (textValue == null) {
+                throw new DBArchitectureException("The values of the IN statement on " + columnName + " can't contain null", null);
+            }
+        }
+        condition = isIn ? WhereCondition.IN : WhereCondition.NOT_IN;
+    }
+
+    /**
+     * Create a copy of this statement, so that changing whether it's an OR statement doesn't change the copy
+     *
+     * @return The copy
+     */
+    WhereStatement copy() {
+        WhereStatement copy = new WhereStatement(columnName, value, condition);
+        copy.isOr = isOr;
+        copy.numericValues = numericValues;
+        copy.textValues = textValues;
+        return copy;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Return the statement as written in the sql. The values of an IN statement are either parameters, whose count is rounded up to a
+     * power of two so that sets of close sizes share the same sql, or the values of a temporary table named after the column.
+     *
+     * @return The statement
+     */
     public String getStatement() {
+        return getStatement(getTempTableName(columnName));
+    }
+
+    /**
+     * Same as {@link #getStatement()}, reading the values from the temporary table given if there are too many to be bound
+     *
+     * @param tempTableName The name of the temporary table, which must be filled by {@link #fillTempTable(SQLiteDatabase, String)}
+     * @return The statement
+     */
+    String getStatement(String tempTableName) {
         if (condition == WhereCondition.NOTNULL || condition == WhereCondition.NULL) {
             return columnName + condition.getCondition();
         }
+        if (isInTempTable()) {
+            return columnName + condition.getCondition() + "(SELECT value FROM " + tempTableName + ")";
+        }
+        if (isValueSet()) {
+            StringBuilder parameters = new StringBuilder("(");
+            for (int i = 0; i < getPaddedCount(); i++) {
+                parameters.append(i == 0 ? "?" : ", ?");
+            }
+            return columnName + condition.getCondition() + parameters.append(")");
+        }
         return columnName + condition.getCondition() + value;
     }
 
+    /**
+     * Return the values to bind to the parameters of {@link #getStatement()}, the last value being repeated up to the count of parameters
+     *
+     * @return The values to bind, empty if the statement has no parameter
+     */
+    public String[] getArgs() {
+        if (!isValueSet() || isInTempTable()) {
+            return new String[0];
+        }
+        int count = getValueCount();
+        String[] args = new String[getPaddedCount()];
+        for (int i = 0; i < args.length; i++) {
+            int index = Math.min(i, count - 1);
+            args[i] = numericValues != null ? String.valueOf(numericValues[index]) : textValues[index];
+        }
+        return args;
+    }
+
+    /**
+     * Return the name of the temporary table holding the values of this statement in the slot given. The tables of text values are apart,
+     * their column having another type.
+     *
+     * @param slot The identifier of the statement in the query, which must be a valid sql name
+     * @return The name of the table
+     */
+    String getTempTableName(String slot) {
+        return "temp.jo_in_" + slot + (numericValues != null ? "" : "_text");
+    }
+
+    /**
+     * Check if the values of this statement are read from a temporary table, which must be filled before executing the query
+     *
+     * @return true if there are more than {@link #MAX_BOUND_VALUES} values
+     */
+    public boolean isInTempTable() {
+        return isValueSet() && getValueCount() > MAX_BOUND_VALUES;
+    }
+
+    /**
+     * Create the temporary table of this statement if needed and fill it with its values. It must be called in a transaction, on the
+     * connection executing the query, and the table emptied by {@link #clearTempTable(SQLiteDatabase, String)} before the transaction
+     * ends. The values are inserted through one compiled statement.
+     *
+     * @param database      The database executing the query
+     * @param tempTableName The name of the temporary table used in the query
+     */
+    void fillTempTable(SQLiteDatabase database, String tempTableName) {
+        boolean isNumeric = numericValues != null;
+        database.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + tempTableName + " (value " + (isNumeric ? "INTEGER" : "TEXT") + " PRIMARY KEY)");
+        database.execSQL("DELETE FROM " + tempTableName);
+        SQLiteStatement insert = database.compileStatement("INSERT OR IGNORE INTO " + tempTableName + " (value) VALUES (?)");
+        try {
+            for (int i = 0; i < getValueCount(); i++) {
+                if (isNumeric) {
+                    insert.bindLong(1, numericValues[i]);
+                } else {
+                    insert.bindString(1, textValues[i]);
+                }
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    /**
+     * Empty a temporary table filled by {@link #fillTempTable(SQLiteDatabase, String)}, so that its values aren't kept in memory
+     * between the queries. The table itself is kept, so that the sql reading it stays valid.
+     *
+     * @param database      The database which executed the query
+     * @param tempTableName The name of the temporary table used in the query
+     */
+    static void clearTempTable(SQLiteDatabase database, String tempTableName) {
+        database.execSQL("DELETE FROM " + tempTableName);
+    }
+
+    /**
+     * Return the values of this statement as text, to tell apart queries whose sql is the same
+     *
+     * @return The values, or an empty string if the statement has no set of values
+     */
+    String getValuesKey() {
+        if (!isValueSet()) {
+            return "";
+        }
+        return numericValues != null ? Arrays.toString(numericValues) : Arrays.toString(textValues);
+    }
+
+    private boolean isValueSet() {
+        return numericValues != null || textValues != null;
+    }
+
+    private int getValueCount() {
+        return numericValues != null ? numericValues.length : textValues.length;
+    }
+
+    private int getPaddedCount() {
+        int count = getValueCount();
+        return count <= 1 ? count : Integer.highestOneBit(count - 1) << 1;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -80,6 +285,8 @@ public class WhereStatement implements Parcelable {
         result = prime * result + ((columnName == null) ? 0 : columnName.hashCode());
         result = prime * result + ((condition == null) ? 0 : condition.hashCode());
         result = prime * result + ((value == null) ? 0 : value.hashCode());
+        result = prime * result + Arrays.hashCode(numericValues);
+        result = prime * result + Arrays.hashCode(textValues);
         return result;
     }
 
@@ -104,6 +311,10 @@ public class WhereStatement implements Parcelable {
                 return false;
         } else if (!value.equals(other.value))
             return false;
+        if (!Arrays.equals(numericValues, other.numericValues))
+            return false;
+        if (!Arrays.equals(textValues, other.textValues))
+            return false;
         return true;
     }
 
@@ -118,6 +329,8 @@ public class WhereStatement implements Parcelable {
         dest.writeString(value);
         dest.writeInt(condition.ordinal());
         dest.writeInt(isOr ? 1 : 0);
+        dest.writeLongArray(numericValues);
+        dest.writeStringArray(textValues);
     }
 
     public boolean isOr() {
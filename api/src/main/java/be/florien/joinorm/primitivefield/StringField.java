@@ -1,4 +1,3 @@
-
 package be.florien.joinorm.primitivefield;
 
 import android.database.Cursor;
@@ -7,14 +6,30 @@ import be.florien.joinorm.architecture.DBPrimitiveField;
 
 public class StringField extends DBPrimitiveField<String> {
 
+    private final StringPool pool;
+
     public StringField(String fieldName) {
+        this(fieldName, null);
+    }
+
+    /**
+     * @param fieldName The field's name as in the database's table
+     * @param pool      The pool deduplicating the values read, or null to keep each value read
+     */
+    public StringField(String fieldName, StringPool pool) {
         super(fieldName);
+        this.pool = pool;
     }
 
     @Override
     public void extractRowValue(Cursor cursor, int column) {
-        currentObject = cursor.getString(column);
+        currentObject = pool == null ? cursor.getString(column) : pool.intern(cursor.getString(column));
         setComplete();
     }
 
+    @Override
+    protected DBPrimitiveField<String> copy() {
+        return new StringField(dataName, pool == null ? null : pool.copy());
+    }
+
 }
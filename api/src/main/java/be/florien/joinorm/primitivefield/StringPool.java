@@ -0,0 +1,116 @@
+package be.florien.joinorm.primitivefield;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of Strings used by {@link StringField} to keep one instance per distinct value of a column. A query pool holds at most maxSize
+ * values and is copied empty with each query definition, a global pool is shared by all the queries and only holds its values weakly.
+ */
+public abstract class StringPool {
+
+    /*
+     * CONSTANTS
+     */
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+    private static final StringPool globalPool = new GlobalPool();
+
+    /*
+     * PUBLIC METHODS
+     */
+
+    /**
+     * Create a pool holding at most maxSize values. Once full, the new values are returned without being pooled.
+     *
+     * @param maxSize The maximum number of distinct values pooled
+     * @return A new empty pool
+     */
+    public static StringPool newQueryPool(int maxSize) {
+        return new QueryPool(maxSize);
+    }
+
+    /**
+     * Return the pool shared by all the queries, whose values are released when no object refer to them anymore
+     *
+     * @return The global pool
+     */
+    public static StringPool getGlobalPool() {
+        return globalPool;
+    }
+
+    /**
+     * Return the pooled instance equal to value, pooling value if there is none
+     *
+     * @param value The value read from the database, may be null
+     * @return The pooled instance, or value itself
+     */
+    public abstract String intern(String value);
+
+    /**
+     * Return the pool to use for a copy of a query definition
+     *
+     * @return A new empty pool with the same bound for a query pool, this pool for the global one
+     */
+    protected abstract StringPool copy();
+
+    /*
+     * INNER CLASSES
+     */
+
+    private static class QueryPool extends StringPool {
+
+        private final int maxSize;
+        private final Map<String, String> values = new HashMap<>();
+
+        QueryPool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String pooled = values.get(value);
+            if (pooled != null) {
+                return pooled;
+            }
+            if (values.size() < maxSize) {
+                values.put(value, value);
+            }
+            return value;
+        }
+
+        @Override
+        protected StringPool copy() {
+            return new QueryPool(maxSize);
+        }
+    }
+
+    private static class GlobalPool extends StringPool {
+
+        private final Map<String, WeakReference<String>> values = new WeakHashMap<>();
+
+        @Override
+        public synchronized String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            WeakReference<String> reference = values.get(value);
+            String pooled = reference == null ? null : reference.get();
+            if (pooled != null) {
+                return pooled;
+            }
+            values.put(value, new WeakReference<>(value));
+            return value;
+        }
+
+        @Override
+        protected StringPool copy() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package be.florien.joinorm.processor;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import be.florien.joinorm.annotation.JoJoin;
+import be.florien.joinorm.annotation.JoTable;
+
+/**
+ * Build the binary codec of a model, writing and reading its public fields, its joined models and lists of joined models through a
+ * GraphWriter and a GraphReader, and optionally a Parcelable wrapper of the model using this codec.
+ */
+class CodecBuilder {
+    /**
+     * Fields
+     */
+
+    private static final String ARCHITECTURE_PACKAGE = "be.florien.joinorm.architecture";
+    private static final ClassName WRITER_CLASS_NAME = ClassName.get(ARCHITECTURE_PACKAGE, "GraphWriter");
+    private static final ClassName READER_CLASS_NAME = ClassName.get(ARCHITECTURE_PACKAGE, "GraphReader");
+    private static final ClassName EXCEPTION_CLASS_NAME = ClassName.get(ARCHITECTURE_PACKAGE, "DBArchitectureException");
+    private static final ClassName PARCEL_CLASS_NAME = ClassName.get("android.os", "Parcel");
+    private static final ClassName PARCELABLE_CLASS_NAME = ClassName.get("android.os", "Parcelable");
+
+    private String tablePackageName;
+    private ClassName modelClassName;
+    private ClassName codecClassName;
+    private MethodSpec.Builder writeBuilder;
+    private MethodSpec.Builder readBuilder;
+
+    /**
+     * Constructor
+     */
+
+    CodecBuilder(String tablePackageName, TypeElement modelElement) {
+        this.tablePackageName = tablePackageName;
+        modelClassName = ClassName.get(modelElement);
+        codecClassName = ClassName.get(tablePackageName, modelElement.getSimpleName() + "Codec");
+        writeBuilder = MethodSpec.methodBuilder("write")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(WRITER_CLASS_NAME, "writer")
+                .addParameter(modelClassName, "model")
+                .addException(IOException.class)
+                .beginControlFlow("if (!writer.beginObject(model))")
+                .addStatement("return")
+                .endControlFlow();
+        readBuilder = MethodSpec.methodBuilder("read")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(READER_CLASS_NAME, "reader")
+                .returns(modelClassName)
+                .addException(IOException.class)
+                .beginControlFlow("if (!reader.beginObject())")
+                .addStatement("return ($T) reader.getReference()", modelClassName)
+                .endControlFlow()
+                .addStatement("$T model = new $T()", modelClassName, modelClassName)
+                .addStatement("reader.register(model)");
+    }
+
+    /**
+     * Accessible methods
+     */
+
+    void addField(Element fieldElement) {
+        if (!fieldElement.getModifiers().contains(Modifier.PUBLIC) || fieldElement.getModifiers().contains(Modifier.STATIC)
+                || fieldElement.getModifiers().contains(Modifier.FINAL)) {
+            return;
+        }
+        JoJoin joinAnnotation = fieldElement.getAnnotation(JoJoin.class);
+        if (joinAnnotation != null && joinAnnotation.isLazy()) {
+            return;
+        }
+        String fieldName = fieldElement.getSimpleName().toString();
+        TypeMirror typeMirror = fieldElement.asType();
+        String valueType = getValueType(typeMirror);
+        if (valueType != null) {
+            writeBuilder.addStatement("writer.write$L(model.$L)", valueType, fieldName);
+            readBuilder.addStatement("model.$L = reader.read$L()", fieldName, valueType);
+            return;
+        }
+
+        TypeElement joinedModel = ProcessingUtil.getJoinedModelElement(fieldElement);
+        if (joinedModel != null && joinedModel == ((DeclaredType) typeMirror).asElement()) {
+            ClassName joinedCodec = getCodecClassName(joinedModel);
+            writeBuilder.addStatement("$T.write(writer, model.$L)", joinedCodec, fieldName);
+            readBuilder.addStatement("model.$L = $T.read(reader)", fieldName, joinedCodec);
+            return;
+        }
+
+        DeclaredType elementType = typeMirror.getKind() == TypeKind.DECLARED ? ProcessingUtil.getTypeParameterDeclaredType((DeclaredType) typeMirror) : null;
+        if (elementType == null || !ClassName.get((TypeElement) ((DeclaredType) typeMirror).asElement()).equals(ClassName.get(List.class))) {
+            return;
+        }
+        String elementValueType = getValueType(elementType);
+        TypeName elementTypeName = TypeName.get(elementType);
+        CodeBlock writeElement;
+        CodeBlock readElement;
+        if (elementValueType != null) {
+            writeElement = CodeBlock.of("writer.write$L(element)", elementValueType);
+            readElement = CodeBlock.of("reader.read$L()", elementValueType);
+        } else if (elementType.asElement().getAnnotation(JoTable.class) != null) {
+            ClassName elementCodec = getCodecClassName((TypeElement) elementType.asElement());
+            writeElement = CodeBlock.of("$T.write(writer, element)", elementCodec);
+            readElement = CodeBlock.of("$T.read(reader)", elementCodec);
+        } else {
+            return;
+        }
+        writeBuilder.addStatement("writer.writeListSize(model.$L)", fieldName)
+                .beginControlFlow("if (model.$L != null)", fieldName)
+                .beginControlFlow("for ($T element : model.$L)", elementTypeName, fieldName)
+                .addStatement("$L", writeElement)
+                .endControlFlow()
+                .endControlFlow();
+        readBuilder.addStatement("int $LSize = reader.readListSize()", fieldName)
+                .beginControlFlow("if ($LSize >= 0)", fieldName)
+                .addStatement("model.$L = new $T<>($LSize)", fieldName, ArrayList.class, fieldName)
+                .beginControlFlow("for (int i = 0; i < $LSize; i++)", fieldName)
+                .addStatement("model.$L.add($L)", fieldName, readElement)
+                .endControlFlow()
+                .endControlFlow();
+    }
+
+    TypeSpec buildCodec() {
+        return TypeSpec.classBuilder(codecClassName.simpleName())
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addJavadoc("Binary codec of $T, keeping the objects shared in the graph shared once decoded.\n", modelClassName)
+                .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+                .addMethod(MethodSpec.methodBuilder("encode")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .addParameter(modelClassName, "model")
+                        .returns(ArrayTypeName.of(TypeName.BYTE))
+                        .addStatement("$T bytes = new $T()", ByteArrayOutputStream.class, ByteArrayOutputStream.class)
+                        .beginControlFlow("try")
+                        .addStatement("$T writer = new $T(bytes)", WRITER_CLASS_NAME, WRITER_CLASS_NAME)
+                        .addStatement("write(writer, model)")
+                        .addStatement("writer.flush()")
+                        .nextControlFlow("catch ($T exception)", IOException.class)
+                        .addStatement("throw new $T(exception)", EXCEPTION_CLASS_NAME)
+                        .endControlFlow()
+                        .addStatement("return bytes.toByteArray()")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("decode")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .addParameter(ArrayTypeName.of(TypeName.BYTE), "bytes")
+                        .returns(modelClassName)
+                        .beginControlFlow("try")
+                        .addStatement("return read(new $T(new $T(bytes)))", READER_CLASS_NAME, ByteArrayInputStream.class)
+                        .nextControlFlow("catch ($T exception)", IOException.class)
+                        .addStatement("throw new $T(exception)", EXCEPTION_CLASS_NAME)
+                        .endControlFlow()
+                        .build())
+                .addMethod(writeBuilder.build())
+                .addMethod(readBuilder.addStatement("return model").build())
+                .build();
+    }
+
+    /**
+     * Build a Parcelable holding a model, written to the Parcel with the codec
+     */
+    TypeSpec buildParcelable() {
+        ClassName parcelClassName = ClassName.get(tablePackageName, modelClassName.simpleName() + "Parcel");
+        ParameterizedTypeName creatorTypeName = ParameterizedTypeName.get(ClassName.get("android.os", "Parcelable", "Creator"), parcelClassName);
+        TypeSpec creator = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(creatorTypeName)
+                .addMethod(MethodSpec.methodBuilder("createFromParcel")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(PARCEL_CLASS_NAME, "source")
+                        .returns(parcelClassName)
+                        .addStatement("return new $T($T.decode(source.createByteArray()))", parcelClassName, codecClassName)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("newArray")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(TypeName.INT, "size")
+                        .returns(ArrayTypeName.of(parcelClassName))
+                        .addStatement("return new $T[size]", parcelClassName)
+                        .build())
+                .build();
+        return TypeSpec.classBuilder(parcelClassName.simpleName())
+                .addModifiers(Modifier.PUBLIC)
+                .addSuperinterface(PARCELABLE_CLASS_NAME)
+                .addJavadoc("Parcelable holding a $T, written with its codec.\n", modelClassName)
+                .addField(FieldSpec.builder(creatorTypeName, "CREATOR", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$L", creator)
+                        .build())
+                .addField(modelClassName, "model", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(modelClassName, "model")
+                        .addStatement("this.model = model")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("getModel")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(modelClassName)
+                        .addStatement("return model")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("describeContents")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.INT)
+                        .addStatement("return 0")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("writeToParcel")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(PARCEL_CLASS_NAME, "dest")
+                        .addParameter(TypeName.INT, "flags")
+                        .addStatement("dest.writeByteArray($T.encode(model))", codecClassName)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Private methods
+     */
+
+    private ClassName getCodecClassName(TypeElement modelElement) {
+        return ClassName.get(ClassName.get(modelElement).packageName() + ".table", modelElement.getSimpleName() + "Codec");
+    }
+
+    /**
+     * Return the suffix of the GraphWriter and GraphReader methods for a primitive, boxed primitive or String type
+     */
+    private String getValueType(TypeMirror typeMirror) {
+        switch (typeMirror.getKind()) {
+            case INT:
+                return "Int";
+            case LONG:
+                return "Long";
+            case DOUBLE:
+                return "Double";
+            case FLOAT:
+                return "Float";
+            case BOOLEAN:
+                return "Boolean";
+            case DECLARED:
+                String className = ClassName.get((TypeElement) ((DeclaredType) typeMirror).asElement()).toString();
+                if (className.equals(String.class.getName())) {
+                    return "String";
+                } else if (className.equals(Integer.class.getName())) {
+                    return "NullableInt";
+                } else if (className.equals(Long.class.getName())) {
+                    return "NullableLong";
+                } else if (className.equals(Double.class.getName())) {
+                    return "NullableDouble";
+                } else if (className.equals(Float.class.getName())) {
+                    return "NullableFloat";
+                } else if (className.equals(Boolean.class.getName())) {
+                    return "NullableBoolean";
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+}
@@ -9,7 +9,10 @@ import com.squareup.javapoet.TypeSpec;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -21,16 +24,19 @@ import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeKind;
 import javax.tools.Diagnostic;
 
 import be.florien.joinorm.annotation.JoIgnore;
+import be.florien.joinorm.annotation.JoJoin;
+import be.florien.joinorm.annotation.JoQuery;
 import be.florien.joinorm.annotation.JoTable;
 import be.florien.joinorm.architecture.DBTable;
 
-@SupportedAnnotationTypes("be.florien.joinorm.annotation.JoTable")
+@SupportedAnnotationTypes({"be.florien.joinorm.annotation.JoTable", "be.florien.joinorm.annotation.JoQuery"})
 @SupportedSourceVersion(SourceVersion.RELEASE_7)
 public class DBTableProcessor extends AbstractProcessor {
 
@@ -43,6 +49,10 @@ public class DBTableProcessor extends AbstractProcessor {
     private TypeSpec.Builder currentClassBuilder;
     private FieldRelatedElementsBuilder fieldElementBuilder;
     private JoinToInnerTableMethodBuilder joinMethodBuilder;
+    private SchemaBuilder schemaBuilder;
+    private ViewBuilder viewBuilder;
+    private CodecBuilder codecBuilder;
+    private Map<String, List<String>> foreignColumns;
     private Messager messager;
 
     //TODO supportedAnnotationTypes is it important ????
@@ -60,6 +70,7 @@ public class DBTableProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> set, RoundEnvironment roundEnvironment) {
+        initForeignColumns(roundEnvironment);
         for (Element tableElement : roundEnvironment.getElementsAnnotatedWith(JoTable.class)) {
             if (tableElement.getKind() != ElementKind.CLASS) {
                 continue;
@@ -74,17 +85,30 @@ public class DBTableProcessor extends AbstractProcessor {
             }
 
             fieldElementBuilder.addSpecToBuilder(currentClassBuilder);
+            schemaBuilder.addSpecToBuilder(currentClassBuilder);
             currentClassBuilder.addMethod(joinMethodBuilder.getJoinToInnerTableMethod());
 
             try {
                 JavaFile.builder(currentTablePackageName, currentClassBuilder.build())
                         .build()
                         .writeTo(processingEnv.getFiler());
+                JavaFile.builder(currentTablePackageName, viewBuilder.build())
+                        .build()
+                        .writeTo(processingEnv.getFiler());
+                JavaFile.builder(currentTablePackageName, codecBuilder.buildCodec())
+                        .build()
+                        .writeTo(processingEnv.getFiler());
+                if (currentModelAnnotation.isGeneratingParcelable()) {
+                    JavaFile.builder(currentTablePackageName, codecBuilder.buildParcelable())
+                            .build()
+                            .writeTo(processingEnv.getFiler());
+                }
 
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+        generateQueryImplementations(roundEnvironment);
         return true;
     }
 
@@ -111,6 +135,11 @@ public class DBTableProcessor extends AbstractProcessor {
 
         fieldElementBuilder = new FieldRelatedElementsBuilder(currentModelAnnotation.isGeneratingSelect(), currentModelAnnotation.isGeneratingWrite(), currentTablePackageName, currentTableClassName, messager);
         joinMethodBuilder = new JoinToInnerTableMethodBuilder(currentTablePackageName);
+        String dbName = ProcessingUtil.getTableName((TypeElement) currentModelElement);
+        List<String> tableForeignColumns = foreignColumns.get(dbName);
+        schemaBuilder = new SchemaBuilder(dbName, tableForeignColumns == null ? new ArrayList<String>() : tableForeignColumns);
+        viewBuilder = new ViewBuilder(currentTablePackageName, (TypeElement) currentModelElement);
+        codecBuilder = new CodecBuilder(currentTablePackageName, (TypeElement) currentModelElement);
 
     }
 
@@ -127,6 +156,9 @@ public class DBTableProcessor extends AbstractProcessor {
         List<MethodSpec> fieldMethods = new ArrayList<>();
         if (fieldElement.getKind().equals(ElementKind.FIELD) && fieldElement.getAnnotation(JoIgnore.class) == null) {
             fieldElementBuilder.addFieldRelatedElements(fieldElement);
+            schemaBuilder.addField(fieldElement);
+            viewBuilder.addField(fieldElement);
+            codecBuilder.addField(fieldElement);
             if (fieldElement.asType().getKind() == TypeKind.DECLARED) {
                 joinMethodBuilder.buildGetJoin(fieldElement);
             }
@@ -134,6 +166,67 @@ public class DBTableProcessor extends AbstractProcessor {
         currentClassBuilder.addMethods(fieldMethods);
     }
 
+    /**
+     * Generate an implementation for each interface declaring JoQuery methods
+     */
+    private void generateQueryImplementations(RoundEnvironment roundEnvironment) {
+        Map<TypeElement, QueryImplementationBuilder> queryBuilders = new LinkedHashMap<>();
+        for (Element queryElement : roundEnvironment.getElementsAnnotatedWith(JoQuery.class)) {
+            TypeElement interfaceElement = (TypeElement) queryElement.getEnclosingElement();
+            if (queryElement.getKind() != ElementKind.METHOD || interfaceElement.getKind() != ElementKind.INTERFACE) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "JoQuery must annotate a method of an interface", queryElement);
+                continue;
+            }
+            QueryImplementationBuilder queryBuilder = queryBuilders.get(interfaceElement);
+            if (queryBuilder == null) {
+                queryBuilder = new QueryImplementationBuilder(interfaceElement, ClassName.get(interfaceElement).packageName(), messager);
+                queryBuilders.put(interfaceElement, queryBuilder);
+            }
+            queryBuilder.addQueryMethod((ExecutableElement) queryElement);
+        }
+
+        for (Map.Entry<TypeElement, QueryImplementationBuilder> queryBuilder : queryBuilders.entrySet()) {
+            if (queryBuilder.getValue().isInError()) {
+                continue;
+            }
+            try {
+                JavaFile.builder(ClassName.get(queryBuilder.getKey()).packageName(), queryBuilder.getValue().build())
+                        .build()
+                        .writeTo(processingEnv.getFiler());
+
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Collect, for each table, the columns referencing another table's ID which are declared by the JoJoin of the other model
+     */
+    private void initForeignColumns(RoundEnvironment roundEnvironment) {
+        foreignColumns = new HashMap<>();
+        for (Element tableElement : roundEnvironment.getElementsAnnotatedWith(JoTable.class)) {
+            for (Element field : tableElement.getEnclosedElements()) {
+                JoJoin joinAnnotation = field.getAnnotation(JoJoin.class);
+                if (field.getKind() != ElementKind.FIELD || joinAnnotation == null || joinAnnotation.isReferenceJoin() || joinAnnotation.getTableRef().equals(JoJoin.IGNORE)) {
+                    continue;
+                }
+                TypeElement joinedModel = ProcessingUtil.getJoinedModelElement(field);
+                if (joinedModel != null) {
+                    String joinedTableName = ProcessingUtil.getTableName(joinedModel);
+                    List<String> columns = foreignColumns.get(joinedTableName);
+                    if (columns == null) {
+                        columns = new ArrayList<>();
+                        foreignColumns.put(joinedTableName, columns);
+                    }
+                    if (!columns.contains(joinAnnotation.getTableRef())) {
+                        columns.add(joinAnnotation.getTableRef());
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Debug Method
      */
@@ -15,12 +15,14 @@ import java.util.List;
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
 
 import be.florien.joinorm.annotation.JoId;
+import be.florien.joinorm.annotation.JoInterned;
 import be.florien.joinorm.annotation.JoJoin;
 import be.florien.joinorm.architecture.DBTable;
 
@@ -31,6 +33,8 @@ class FieldRelatedElementsBuilder {
 
     private static final String DECLARED_TYPE_NAME = "declared";
     private static final String ERROR_TYPE = "error_type";
+    private static final ClassName LAZY_RELATION_CLASS_NAME = ClassName.get("be.florien.joinorm.architecture", "LazyRelation");
+    private static final ClassName LAZY_LIST_CLASS_NAME = ClassName.get("be.florien.joinorm.architecture", "LazyList");
 
     private boolean isGeneratingSelect;
     private boolean isGeneratingWrite;
@@ -67,8 +71,9 @@ class FieldRelatedElementsBuilder {
         boolean isId = (fieldElement.getAnnotation(JoId.class) != null);
         String dbTypeName = getTypeName(typeMirror);
         String alias = JoJoin.IGNORE;
+        JoJoin lazyJoinAnnotation = null;
         String parameterName = fieldElement.getSimpleName().toString();
-        String selectMethodName = snakeToCamel(parameterName);
+        String selectMethodName = ProcessingUtil.snakeToCamel(parameterName);
         selectMethodName = "select" + selectMethodName.substring(0, 1).toUpperCase() + selectMethodName.substring(1);
         MethodSpec.Builder selectBuilder = MethodSpec.methodBuilder(selectMethodName);
 
@@ -103,10 +108,19 @@ class FieldRelatedElementsBuilder {
                     className = ProcessingUtil.getDBTableTypeName(fieldElement, tablePackageName);
                 }
 
-                if (className != null) {
+                if (className != null && fieldJoinAnnotation.isLazy() && fieldJoinAnnotation.getTableRef().equals(JoJoin.IGNORE)) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "Element " + fieldElement.getSimpleName() + " annotated with JoJoin is lazy but doesn't define getTableRef in " + tableClassName.toString(), fieldElement);
+                    return;
+                } else if (className != null && fieldJoinAnnotation.isLazy() && !isLazyFieldType(fieldDeclaredType)) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "Element " + fieldElement.getSimpleName() + " annotated with JoJoin is lazy but isn't a LazyRelation, a LazyList or a List in " + tableClassName.toString(), fieldElement);
+                    return;
+                } else if (className != null) {
                     dbTypeName = "Table";
                     alias = fieldJoinAnnotation.getAlias();
-                    parameterName = snakeToCamel(parameterName);
+                    if (fieldJoinAnnotation.isLazy()) {
+                        lazyJoinAnnotation = fieldJoinAnnotation;
+                    }
+                    parameterName = ProcessingUtil.snakeToCamel(parameterName);
                     selectBuilder.addParameter(ParameterSpec.builder(className, parameterName).build());
                 } else {
                     messager.printMessage(Diagnostic.Kind.ERROR, "Element " + fieldElement.getSimpleName() + " annotated with JoJoin is not a DBTable in " + tableClassName.toString(), fieldElement);
@@ -121,7 +135,7 @@ class FieldRelatedElementsBuilder {
         boolean shouldWriteColumnName = isId;
         ParameterSpec value = ParameterSpec.builder(TypeName.get(typeMirror), "value").build();
 
-        if (isGeneratingWrite) {
+        if (isGeneratingWrite && lazyJoinAnnotation == null) {
             methods.add(MethodSpec.methodBuilder("write" + parameterName.substring(0, 1).toUpperCase() + parameterName.substring(1))
                     .addModifiers(Modifier.PUBLIC)
                     .addParameter(value)
@@ -133,16 +147,38 @@ class FieldRelatedElementsBuilder {
         if (isGeneratingSelect && !isId) {
             MethodSpec.Builder builder = selectBuilder.returns(tableClassName)
                     .addModifiers(Modifier.PUBLIC);
-            if (!alias.equals(JoJoin.IGNORE)) {
+            if (lazyJoinAnnotation != null) {
+                builder.addStatement("selectLazyTable($L, $L, $L, $S)", parameterName,
+                        alias.equals(JoJoin.IGNORE) ? "null" : "\"" + alias + "\"",
+                        lazyJoinAnnotation.isReferenceJoin(),
+                        lazyJoinAnnotation.getTableRef());
+            } else if (!alias.equals(JoJoin.IGNORE)) {
                 builder.addStatement("select$L($L, $S)", dbTypeName, parameterName, alias);
             } else if (dbTypeName.equals("Table")) {
                 builder.addStatement("select$L($L)", dbTypeName, parameterName);
+            } else if (dbTypeName.equals("String") && fieldElement.getAnnotation(JoInterned.class) != null) {
+                if (fieldElement.getAnnotation(JoInterned.class).isGlobal()) {
+                    builder.addStatement("selectString($S, $T.getGlobalPool())", parameterName, ClassName.get("be.florien.joinorm.primitivefield", "StringPool"));
+                } else {
+                    builder.addStatement("selectInternedString($S)", parameterName);
+                }
             } else {
                 builder.addStatement("select$L($S)", dbTypeName, parameterName);
             }
             methods.add(builder
                     .addStatement("return this")
                     .build());
+            if (dbTypeName.equals("Table") && lazyJoinAnnotation == null && isSelfReferencingList(fieldElement)) {
+                methods.add(MethodSpec.methodBuilder(selectMethodName + "Tree")
+                        .addJavadoc("Load this table as a tree of $L, maxDepth levels deep. Needs SQLite 3.8.3 (Android 5.0, API level 21).\n",
+                                fieldElement.getSimpleName())
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(TypeName.INT, "maxDepth")
+                        .returns(tableClassName)
+                        .addStatement("selectTree($S, $S, maxDepth)", fieldElement.getAnnotation(JoJoin.class).getTableRef(), fieldElement.getSimpleName())
+                        .addStatement("return this")
+                        .build());
+            }
             shouldWriteColumnName = true;
         }
 
@@ -157,6 +193,30 @@ class FieldRelatedElementsBuilder {
         classBuilder.addFields(fields);
     }
 
+    /**
+     * Check if the type of a lazy field can receive the placeholder set by the parser
+     */
+    private boolean isLazyFieldType(DeclaredType fieldDeclaredType) {
+        String rawTypeName = ClassName.get((TypeElement) fieldDeclaredType.asElement()).toString();
+        return rawTypeName.equals(LAZY_RELATION_CLASS_NAME.toString())
+                || rawTypeName.equals(LAZY_LIST_CLASS_NAME.toString())
+                || rawTypeName.equals(List.class.getName());
+    }
+
+    /**
+     * Check if the field is a list of the model containing it, joined by a reference to the ID of its parent, which can be loaded as a tree
+     */
+    private boolean isSelfReferencingList(Element fieldElement) {
+        JoJoin joinAnnotation = fieldElement.getAnnotation(JoJoin.class);
+        Element joinedModel = ProcessingUtil.getJoinedModelElement(fieldElement);
+        return joinAnnotation != null
+                && !joinAnnotation.isReferenceJoin()
+                && !joinAnnotation.getTableRef().equals(JoJoin.IGNORE)
+                && joinedModel != null
+                && joinedModel.equals(fieldElement.getEnclosingElement())
+                && joinedModel != ((DeclaredType) fieldElement.asType()).asElement();
+    }
+
     private List<MethodSpec> getIdMethods() {
         List<MethodSpec> idMethods = new ArrayList<>(2);
         ParameterizedTypeName listTypeName = ParameterizedTypeName.get(List.class, String.class);
@@ -190,7 +250,7 @@ class FieldRelatedElementsBuilder {
 
     private void addColumnField(Element fieldElement) {
         String columnFieldValue = String.valueOf(fieldElement.getSimpleName());
-        String columnFieldName = "COLUMN_" + camelToSnake(columnFieldValue).toUpperCase();
+        String columnFieldName = "COLUMN_" + ProcessingUtil.camelToSnake(columnFieldValue).toUpperCase();
         fields.add(FieldSpec.builder(TypeName.get(String.class), columnFieldName, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
                 .initializer("$S", columnFieldValue)
                 .build());
@@ -241,28 +301,4 @@ class FieldRelatedElementsBuilder {
 
         }
     }
-
-    private String camelToSnake(String dataFieldName) {
-        String columnFieldName = dataFieldName;
-
-        for (int i = dataFieldName.length() - 1; i >= 0; i--) {
-            if (Character.isUpperCase(dataFieldName.charAt(i))) {
-                columnFieldName = dataFieldName.substring(0, i) + '_' + columnFieldName.substring(i, columnFieldName.length());
-            }
-        }
-
-        return columnFieldName;
-    }
-
-    private String snakeToCamel(String dataFieldName) {
-        String columnFieldName = dataFieldName;
-
-        for (int i = dataFieldName.length() - 1; i >= 0; i--) {
-            if (dataFieldName.charAt(i) == '_') {
-                columnFieldName = dataFieldName.substring(0, i) + columnFieldName.substring(i + 1, i + 2).toUpperCase() + columnFieldName.substring(i + 2, columnFieldName.length());
-            }
-        }
-
-        return columnFieldName;
-    }
 }
@@ -53,7 +53,7 @@ class JoinToInnerTableMethodBuilder {
     void buildGetJoin(Element fieldElement) {
         JoJoin joinAnnotation = fieldElement.getAnnotation(JoJoin.class);
 
-        if (joinAnnotation != null) {
+        if (joinAnnotation != null && !joinAnnotation.isLazy()) {
             if (isJoinCustomClassDefined(joinAnnotation)) {
                 DeclaredType customTableClassType = (DeclaredType) getTableClass(joinAnnotation);
                 TypeElement customTableClassElement = (TypeElement) customTableClassType.asElement();
@@ -36,6 +36,32 @@ class ProcessingUtil {
         return className;
     }
 
+    /**
+     * Return the model annotated with {@link JoTable} of the field, or of the elements of the field if it's a List
+     */
+    static TypeElement getJoinedModelElement(Element fieldElement) {
+        if (fieldElement.asType().getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType fieldDeclaredType = (DeclaredType) fieldElement.asType();
+        if (fieldDeclaredType.asElement().getAnnotation(JoTable.class) != null) {
+            return (TypeElement) fieldDeclaredType.asElement();
+        }
+        DeclaredType parameterDeclaredType = getTypeParameterDeclaredType(fieldDeclaredType);
+        if (parameterDeclaredType != null && parameterDeclaredType.asElement().getAnnotation(JoTable.class) != null) {
+            return (TypeElement) parameterDeclaredType.asElement();
+        }
+        return null;
+    }
+
+    /**
+     * Return the name of the table of the model in the database, as given to the constructor of its generated DBTable
+     */
+    static String getTableName(TypeElement modelElement) {
+        JoTable tableAnnotation = modelElement.getAnnotation(JoTable.class);
+        return tableAnnotation.tableName().equals(JoTable.STRING_IGNORE) ? modelElement.getSimpleName() + "Table" : tableAnnotation.tableName();
+    }
+
     static DeclaredType getTypeParameterDeclaredType(DeclaredType declaredType) {
         DeclaredType parameterDeclaredType = null;
         TypeMirror parameterType = getParameterType(declaredType);
@@ -52,4 +78,28 @@ class ProcessingUtil {
         }
         return parameterType;
     }
+
+    static String camelToSnake(String dataFieldName) {
+        String columnFieldName = dataFieldName;
+
+        for (int i = dataFieldName.length() - 1; i >= 0; i--) {
+            if (Character.isUpperCase(dataFieldName.charAt(i))) {
+                columnFieldName = dataFieldName.substring(0, i) + '_' + columnFieldName.substring(i, columnFieldName.length());
+            }
+        }
+
+        return columnFieldName;
+    }
+
+    static String snakeToCamel(String dataFieldName) {
+        String columnFieldName = dataFieldName;
+
+        for (int i = dataFieldName.length() - 1; i >= 0; i--) {
+            if (dataFieldName.charAt(i) == '_') {
+                columnFieldName = dataFieldName.substring(0, i) + columnFieldName.substring(i + 1, i + 2).toUpperCase() + columnFieldName.substring(i + 2, columnFieldName.length());
+            }
+        }
+
+        return columnFieldName;
+    }
 }
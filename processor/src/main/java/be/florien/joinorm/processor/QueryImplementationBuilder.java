@@ -0,0 +1,389 @@
+package be.florien.joinorm.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import be.florien.joinorm.annotation.JoId;
+import be.florien.joinorm.annotation.JoJoin;
+import be.florien.joinorm.annotation.JoQuery;
+import be.florien.joinorm.annotation.JoTable;
+
+/**
+ * Build the implementation of an interface declaring {@link JoQuery} methods. Each query is turned at compile time into its SQL constant and
+ * a method reading the cursor at fixed column offsets straight into the model's fields.
+ */
+class QueryImplementationBuilder {
+    /**
+     * Fields
+     */
+
+    private static final ClassName CURSOR_CLASS_NAME = ClassName.get("android.database", "Cursor");
+    private static final ClassName OPEN_HELPER_CLASS_NAME = ClassName.get("android.database.sqlite", "SQLiteOpenHelper");
+
+    private TypeElement interfaceElement;
+    private String packageName;
+    private Messager messager;
+    private TypeSpec.Builder classBuilder;
+    private boolean isInError;
+
+    /**
+     * Constructor
+     */
+
+    QueryImplementationBuilder(TypeElement interfaceElement, String packageName, Messager messager) {
+        this.interfaceElement = interfaceElement;
+        this.packageName = packageName;
+        this.messager = messager;
+        classBuilder = TypeSpec.classBuilder(interfaceElement.getSimpleName() + "Impl")
+                .addModifiers(Modifier.PUBLIC)
+                .addSuperinterface(ClassName.get(interfaceElement))
+                .addField(OPEN_HELPER_CLASS_NAME, "openHelper", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(OPEN_HELPER_CLASS_NAME, "openHelper")
+                        .addStatement("this.openHelper = openHelper")
+                        .build());
+    }
+
+    /**
+     * Accessible methods
+     */
+
+    void addQueryMethod(ExecutableElement methodElement) {
+        JoQuery queryAnnotation = methodElement.getAnnotation(JoQuery.class);
+        String methodName = methodElement.getSimpleName().toString();
+        TypeMirror returnType = methodElement.getReturnType();
+        TypeElement modelElement = getModelElement(returnType);
+        boolean isList = modelElement != null && modelElement.getAnnotation(JoTable.class) == null;
+        if (isList) {
+            modelElement = (TypeElement) ProcessingUtil.getTypeParameterDeclaredType((DeclaredType) returnType).asElement();
+        }
+        if (modelElement == null) {
+            printError("Method " + methodName + " annotated with JoQuery must return a model annotated with JoTable or a List of it", methodElement);
+            return;
+        }
+
+        String tableName = ProcessingUtil.getTableName(modelElement);
+        String select = "";
+        String joins = "";
+        List<CodeBlock> parseStatements = new ArrayList<>();
+        Map<String, Integer> joinOffsets = new LinkedHashMap<>();
+        Map<String, List<CodeBlock>> joinParseStatements = new LinkedHashMap<>();
+        int columnOffset = 0;
+
+        for (String selectedField : queryAnnotation.fields()) {
+            String[] path = selectedField.split("\\.");
+            Element fieldElement;
+            String columnName;
+            List<CodeBlock> statements;
+            String target;
+            if (path.length == 1) {
+                fieldElement = getField(modelElement, path[0]);
+                columnName = tableName + "." + path[0];
+                statements = parseStatements;
+                target = "model";
+            } else if (path.length == 2) {
+                Element joinElement = getField(modelElement, path[0]);
+                if (joinElement == null) {
+                    printError("Field " + path[0] + " of JoQuery " + methodName + " doesn't exist in " + modelElement.getSimpleName(), methodElement);
+                    return;
+                }
+                TypeElement joinedModel = ProcessingUtil.getJoinedModelElement(joinElement);
+                JoJoin joinAnnotation = joinElement.getAnnotation(JoJoin.class);
+                if (joinAnnotation == null || joinedModel == null || joinAnnotation.isLazy() || joinAnnotation.getTableRef().equals(JoJoin.IGNORE)) {
+                    printError("Field " + path[0] + " of JoQuery " + methodName + " must be a JoJoin, not lazy, defining getTableRef", methodElement);
+                    return;
+                }
+                if (joinedModel != ((DeclaredType) joinElement.asType()).asElement()) {
+                    printError("Field " + path[0] + " of JoQuery " + methodName + " is a list: only joins to a single model are supported", methodElement);
+                    return;
+                }
+                if (!isAccessible(joinElement)) {
+                    printError("Field " + path[0] + " of JoQuery " + methodName + " must be accessible from " + packageName, methodElement);
+                    return;
+                }
+                if (!joinParseStatements.containsKey(path[0])) {
+                    String joinCondition = getJoinCondition(modelElement, tableName, joinElement, joinedModel, methodElement);
+                    if (joinCondition == null) {
+                        return;
+                    }
+                    joins = joins + (joinAnnotation.isLeftJoin() ? " LEFT JOIN " : " JOIN ") + ProcessingUtil.getTableName(joinedModel) + " AS " + path[0]
+                            + " ON " + joinCondition;
+                    select = select + (columnOffset == 0 ? "" : ", ") + joinCondition.substring(joinCondition.indexOf('=') + 2);
+                    joinOffsets.put(path[0], columnOffset);
+                    joinParseStatements.put(path[0], new ArrayList<CodeBlock>());
+                    columnOffset++;
+                }
+                fieldElement = getField(joinedModel, path[1]);
+                columnName = path[0] + "." + path[1];
+                statements = joinParseStatements.get(path[0]);
+                target = "model." + path[0];
+            } else {
+                printError("Field " + selectedField + " of JoQuery " + methodName + " is nested too deep: only one join level is supported", methodElement);
+                return;
+            }
+
+            if (fieldElement == null) {
+                printError("Field " + selectedField + " of JoQuery " + methodName + " doesn't exist", methodElement);
+                return;
+            }
+            if (!isAccessible(fieldElement)) {
+                printError("Field " + selectedField + " of JoQuery " + methodName + " must be accessible from " + packageName, methodElement);
+                return;
+            }
+            CodeBlock getter = getCursorGetter(fieldElement.asType(), columnOffset);
+            if (getter == null) {
+                printError("Field " + selectedField + " of JoQuery " + methodName + " is not a primitive field", methodElement);
+                return;
+            }
+            statements.add(CodeBlock.of("$L.$L = $L", target, fieldElement.getSimpleName(), getter));
+            select = select + (columnOffset == 0 ? "" : ", ") + columnName;
+            columnOffset++;
+        }
+
+        String sql = "SELECT " + select + " FROM " + tableName + joins;
+        int nbArgs = 0;
+        if (!queryAnnotation.where().equals(JoQuery.STRING_IGNORE)) {
+            sql = sql + " WHERE " + queryAnnotation.where();
+            nbArgs = countParameters(queryAnnotation.where());
+        }
+        if (!queryAnnotation.orderBy().equals(JoQuery.STRING_IGNORE)) {
+            sql = sql + " ORDER BY " + queryAnnotation.orderBy();
+        }
+        if (nbArgs != methodElement.getParameters().size()) {
+            printError("JoQuery " + methodName + " has " + methodElement.getParameters().size() + " parameters for " + nbArgs + " ? in its where", methodElement);
+            return;
+        }
+
+        String sqlFieldName = "SQL_" + ProcessingUtil.camelToSnake(methodName).toUpperCase();
+        classBuilder.addField(FieldSpec.builder(TypeName.get(String.class), sqlFieldName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", sql)
+                .build());
+        classBuilder.addMethod(getParseMethod(methodName, modelElement, parseStatements, joinOffsets, joinParseStatements));
+        classBuilder.addMethod(getQueryMethod(methodElement, sqlFieldName, ClassName.get(modelElement), isList));
+    }
+
+    boolean isInError() {
+        return isInError;
+    }
+
+    TypeSpec build() {
+        return classBuilder.build();
+    }
+
+    /**
+     * Private methods
+     */
+
+    /**
+     * Count the ? of the sql outside of the string literals and quoted identifiers
+     */
+    private int countParameters(String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char character = sql.charAt(i);
+            if (quote != 0) {
+                if (character == quote) {
+                    quote = 0;
+                }
+            } else if (character == '\'' || character == '"' || character == '`') {
+                quote = character;
+            } else if (character == '[') {
+                quote = ']';
+            } else if (character == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private MethodSpec getQueryMethod(ExecutableElement methodElement, String sqlFieldName, ClassName modelClassName, boolean isList) {
+        String methodName = methodElement.getSimpleName().toString();
+        String parseMethodName = "parse" + methodName.substring(0, 1).toUpperCase() + methodName.substring(1);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.get(methodElement.getReturnType()));
+        CodeBlock.Builder args = CodeBlock.builder();
+        for (VariableElement parameter : methodElement.getParameters()) {
+            methodBuilder.addParameter(ParameterSpec.builder(TypeName.get(parameter.asType()), parameter.getSimpleName().toString()).build());
+            if (parameter != methodElement.getParameters().get(0)) {
+                args.add(", ");
+            }
+            if (parameter.asType().getKind() == TypeKind.BOOLEAN) {
+                args.add("$L ? \"1\" : \"0\"", parameter.getSimpleName());
+            } else {
+                args.add("$T.valueOf($L)", String.class, parameter.getSimpleName());
+            }
+        }
+
+        if (methodElement.getParameters().isEmpty()) {
+            methodBuilder.addStatement("$T cursor = openHelper.getReadableDatabase().rawQuery($L, null)", CURSOR_CLASS_NAME, sqlFieldName);
+        } else {
+            methodBuilder.addStatement("$T cursor = openHelper.getReadableDatabase().rawQuery($L, new String[]{$L})", CURSOR_CLASS_NAME, sqlFieldName, args.build());
+        }
+        methodBuilder.beginControlFlow("try");
+        if (isList) {
+            methodBuilder.addStatement("$T<$T> results = new $T<>(cursor.getCount())", List.class, modelClassName, ArrayList.class)
+                    .beginControlFlow("while (cursor.moveToNext())")
+                    .addStatement("results.add($L(cursor))", parseMethodName)
+                    .endControlFlow()
+                    .addStatement("return results");
+        } else {
+            methodBuilder.addStatement("return cursor.moveToFirst() ? $L(cursor) : null", parseMethodName);
+        }
+        return methodBuilder.nextControlFlow("finally")
+                .addStatement("cursor.close()")
+                .endControlFlow()
+                .build();
+    }
+
+    private MethodSpec getParseMethod(String methodName, TypeElement modelElement, List<CodeBlock> parseStatements, Map<String, Integer> joinOffsets, Map<String, List<CodeBlock>> joinParseStatements) {
+        ClassName modelClassName = ClassName.get(modelElement);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder("parse" + methodName.substring(0, 1).toUpperCase() + methodName.substring(1))
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(CURSOR_CLASS_NAME, "cursor")
+                .returns(modelClassName)
+                .addStatement("$T model = new $T()", modelClassName, modelClassName);
+        for (CodeBlock statement : parseStatements) {
+            methodBuilder.addStatement("$L", statement);
+        }
+        for (Map.Entry<String, List<CodeBlock>> join : joinParseStatements.entrySet()) {
+            TypeName joinedClassName = TypeName.get(getField(modelElement, join.getKey()).asType());
+            methodBuilder.beginControlFlow("if (!cursor.isNull($L))", joinOffsets.get(join.getKey()))
+                    .addStatement("model.$L = new $T()", join.getKey(), joinedClassName);
+            for (CodeBlock statement : join.getValue()) {
+                methodBuilder.addStatement("$L", statement);
+            }
+            methodBuilder.endControlFlow();
+        }
+        return methodBuilder.addStatement("return model").build();
+    }
+
+    /**
+     * Return the ON condition of the join, the last operand being the joined table's column, which is null when no row is joined
+     */
+    private String getJoinCondition(TypeElement modelElement, String tableName, Element joinElement, TypeElement joinedModel, ExecutableElement methodElement) {
+        JoJoin joinAnnotation = joinElement.getAnnotation(JoJoin.class);
+        String alias = joinElement.getSimpleName().toString();
+        if (joinAnnotation.isReferenceJoin()) {
+            String joinedId = getSingleId(joinedModel);
+            if (joinedId == null) {
+                printError("Model " + joinedModel.getSimpleName() + " joined in JoQuery " + methodElement.getSimpleName() + " must have exactly one JoId", methodElement);
+                return null;
+            }
+            return tableName + "." + joinAnnotation.getTableRef() + " = " + alias + "." + joinedId;
+        } else {
+            String id = getSingleId(modelElement);
+            if (id == null) {
+                printError("Model " + modelElement.getSimpleName() + " of JoQuery " + methodElement.getSimpleName() + " must have exactly one JoId", methodElement);
+                return null;
+            }
+            return tableName + "." + id + " = " + alias + "." + joinAnnotation.getTableRef();
+        }
+    }
+
+    private TypeElement getModelElement(TypeMirror returnType) {
+        if (returnType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement returnElement = (TypeElement) ((DeclaredType) returnType).asElement();
+        if (returnElement.getAnnotation(JoTable.class) != null) {
+            return returnElement;
+        }
+        DeclaredType parameterDeclaredType = ProcessingUtil.getTypeParameterDeclaredType((DeclaredType) returnType);
+        if (ClassName.get(returnElement).equals(ClassName.get(List.class)) && parameterDeclaredType != null && parameterDeclaredType.asElement().getAnnotation(JoTable.class) != null) {
+            return returnElement;
+        }
+        return null;
+    }
+
+    private Element getField(TypeElement modelElement, String fieldName) {
+        for (Element enclosed : modelElement.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.FIELD && enclosed.getSimpleName().contentEquals(fieldName)) {
+                return enclosed;
+            }
+        }
+        return null;
+    }
+
+    private String getSingleId(TypeElement modelElement) {
+        String id = null;
+        for (Element enclosed : modelElement.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.FIELD && enclosed.getAnnotation(JoId.class) != null) {
+                if (id != null) {
+                    return null;
+                }
+                id = enclosed.getSimpleName().toString();
+            }
+        }
+        return id;
+    }
+
+    private boolean isAccessible(Element fieldElement) {
+        if (fieldElement.getModifiers().contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        String fieldPackageName = ClassName.get((TypeElement) fieldElement.getEnclosingElement()).packageName();
+        return !fieldElement.getModifiers().contains(Modifier.PRIVATE) && fieldPackageName.equals(packageName);
+    }
+
+    private CodeBlock getCursorGetter(TypeMirror typeMirror, int columnOffset) {
+        switch (typeMirror.getKind()) {
+            case BOOLEAN:
+                return CodeBlock.of("cursor.getInt($L) != 0", columnOffset);
+            case INT:
+                return CodeBlock.of("cursor.getInt($L)", columnOffset);
+            case LONG:
+                return CodeBlock.of("cursor.getLong($L)", columnOffset);
+            case FLOAT:
+                return CodeBlock.of("cursor.getFloat($L)", columnOffset);
+            case DOUBLE:
+                return CodeBlock.of("cursor.getDouble($L)", columnOffset);
+            case DECLARED:
+                String className = ClassName.get((TypeElement) ((DeclaredType) typeMirror).asElement()).toString();
+                if (className.equals(String.class.getName())) {
+                    return CodeBlock.of("cursor.getString($L)", columnOffset);
+                } else if (className.equals(Integer.class.getName())) {
+                    return CodeBlock.of("cursor.isNull($L) ? null : cursor.getInt($L)", columnOffset, columnOffset);
+                } else if (className.equals(Long.class.getName())) {
+                    return CodeBlock.of("cursor.isNull($L) ? null : cursor.getLong($L)", columnOffset, columnOffset);
+                } else if (className.equals(Double.class.getName())) {
+                    return CodeBlock.of("cursor.isNull($L) ? null : cursor.getDouble($L)", columnOffset, columnOffset);
+                } else if (className.equals(Boolean.class.getName())) {
+                    return CodeBlock.of("cursor.isNull($L) ? null : cursor.getInt($L) != 0", columnOffset, columnOffset);
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private void printError(String message, Element element) {
+        isInError = true;
+        messager.printMessage(Diagnostic.Kind.ERROR, message + " in " + interfaceElement.getSimpleName(), element);
+    }
+}
@@ -0,0 +1,173 @@
+package be.florien.joinorm.processor;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+
+import be.florien.joinorm.annotation.JoId;
+import be.florien.joinorm.annotation.JoJoin;
+
+/**
+ * Build the schema of the table of a model: the CREATE TABLE statement with its primary key on the {@link JoId} fields, and a CREATE INDEX
+ * statement for each of its columns referencing another table in a {@link JoJoin}, whether the join is declared by this model or by the other.
+ */
+class SchemaBuilder {
+    /**
+     * Fields
+     */
+
+    private static final String INTEGER = "INTEGER";
+
+    private String tableName;
+    private Map<String, String> columns;
+    private List<String> ids;
+    private List<String> indexes;
+
+    /**
+     * Constructor
+     */
+
+    /**
+     * @param tableName      The name of the table in the database
+     * @param foreignColumns The columns of this table referenced by the JoJoin of other models, which are added if no field declares them
+     *                       and indexed
+     */
+    SchemaBuilder(String tableName, List<String> foreignColumns) {
+        this.tableName = tableName;
+        this.columns = new LinkedHashMap<>();
+        this.ids = new ArrayList<>();
+        this.indexes = new ArrayList<>();
+        for (String foreignColumn : foreignColumns) {
+            columns.put(foreignColumn, INTEGER);
+            addIndex(foreignColumn);
+        }
+    }
+
+    /**
+     * Accessible methods
+     */
+
+    void addField(Element fieldElement) {
+        String fieldName = fieldElement.getSimpleName().toString();
+        JoJoin joinAnnotation = fieldElement.getAnnotation(JoJoin.class);
+        if (joinAnnotation != null) {
+            if (joinAnnotation.getTableRef().equals(JoJoin.IGNORE)) {
+                return;
+            }
+            if (joinAnnotation.isReferenceJoin()) {
+                columns.put(joinAnnotation.getTableRef(), INTEGER);
+                addIndex(joinAnnotation.getTableRef());
+            }
+            return;
+        }
+
+        String sqlType = getSqlType(fieldElement.asType());
+        if (sqlType != null) {
+            columns.put(fieldName, sqlType);
+            if (fieldElement.getAnnotation(JoId.class) != null) {
+                ids.add(fieldName);
+            }
+        }
+    }
+
+    void addSpecToBuilder(TypeSpec.Builder classBuilder) {
+        ClassName databaseClassName = ClassName.get("android.database.sqlite", "SQLiteDatabase");
+        CodeBlock.Builder indexesInitializer = CodeBlock.builder().add("{");
+        for (int i = 0; i < indexes.size(); i++) {
+            indexesInitializer.add(i == 0 ? "$S" : ", $S", indexes.get(i));
+        }
+        classBuilder.addField(FieldSpec.builder(TypeName.get(String.class), "CREATE_TABLE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", getCreateTable())
+                .build());
+        classBuilder.addField(FieldSpec.builder(ArrayTypeName.of(String.class), "CREATE_INDEXES", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer(indexesInitializer.add("}").build())
+                .build());
+        classBuilder.addMethod(MethodSpec.methodBuilder("createSchema")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(databaseClassName, "database")
+                .addStatement("database.execSQL(CREATE_TABLE)")
+                .beginControlFlow("for (String createIndex : CREATE_INDEXES)")
+                .addStatement("database.execSQL(createIndex)")
+                .endControlFlow()
+                .build());
+    }
+
+    /**
+     * Utility methods
+     */
+
+    private String getCreateTable() {
+        boolean isIntegerPrimaryKey = ids.size() == 1 && columns.get(ids.get(0)).equals(INTEGER);
+        String createTable = "CREATE TABLE IF NOT EXISTS " + tableName + " (";
+        boolean isFirstColumn = true;
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            if (!isFirstColumn) {
+                createTable = createTable + ", ";
+            }
+            createTable = createTable + column.getKey() + " " + column.getValue();
+            if (isIntegerPrimaryKey && column.getKey().equals(ids.get(0))) {
+                createTable = createTable + " PRIMARY KEY";
+            }
+            isFirstColumn = false;
+        }
+        if (!ids.isEmpty() && !isIntegerPrimaryKey) {
+            String primaryKey = "";
+            for (String id : ids) {
+                if (!id.equals(ids.get(0))) {
+                    primaryKey = primaryKey + ", ";
+                }
+                primaryKey = primaryKey + id;
+            }
+            createTable = createTable + ", PRIMARY KEY (" + primaryKey + ")";
+        }
+        return createTable + ")";
+    }
+
+    private void addIndex(String column) {
+        String index = "CREATE INDEX IF NOT EXISTS idx_" + tableName + "_" + column + " ON " + tableName + " (" + column + ")";
+        if (!indexes.contains(index)) {
+            indexes.add(index);
+        }
+    }
+
+    private String getSqlType(TypeMirror typeMirror) {
+        switch (typeMirror.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return INTEGER;
+            case FLOAT:
+            case DOUBLE:
+                return "REAL";
+            case DECLARED:
+                String className = ClassName.get((TypeElement) ((DeclaredType) typeMirror).asElement()).toString();
+                if (className.equals(String.class.getName())) {
+                    return "TEXT";
+                } else if (className.equals(Integer.class.getName()) || className.equals(Boolean.class.getName()) || className.equals(Long.class.getName())) {
+                    return INTEGER;
+                } else if (className.equals(Double.class.getName()) || className.equals(Float.class.getName())) {
+                    return "REAL";
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+}
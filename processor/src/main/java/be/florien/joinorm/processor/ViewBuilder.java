@@ -0,0 +1,185 @@
+package be.florien.joinorm.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import be.florien.joinorm.annotation.JoJoin;
+import be.florien.joinorm.annotation.JoTable;
+
+/**
+ * Build the view of a model reading a {@link be.florien.joinorm.architecture.ColumnarTable ColumnarTable}: a flyweight moved from row to
+ * row, with a getter per selectable field reading the column arrays, and getters returning the views of the joined models. The getters of
+ * the boxed fields return null for the NULL values, as the model would.
+ */
+class ViewBuilder {
+    /**
+     * Fields
+     */
+
+    private static final ClassName COLUMNAR_TABLE_CLASS_NAME = ClassName.get("be.florien.joinorm.architecture", "ColumnarTable");
+
+    private ClassName viewClassName;
+    private TypeSpec.Builder classBuilder;
+    private MethodSpec.Builder constructorBuilder;
+
+    /**
+     * Constructor
+     */
+
+    ViewBuilder(String tablePackageName, TypeElement modelElement) {
+        viewClassName = ClassName.get(tablePackageName, modelElement.getSimpleName() + "View");
+        classBuilder = TypeSpec.classBuilder(viewClassName.simpleName())
+                .addModifiers(Modifier.PUBLIC)
+                .addJavadoc("View of the $T of a ColumnarTable. The same instance is moved from row to row, and so are the views it returns.\n", ClassName.get(modelElement))
+                .addField(COLUMNAR_TABLE_CLASS_NAME, "table", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(TypeName.INT, "row", Modifier.PRIVATE);
+        constructorBuilder = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(COLUMNAR_TABLE_CLASS_NAME, "table")
+                .addStatement("this.table = table");
+        classBuilder.addMethod(MethodSpec.methodBuilder("moveTo")
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(TypeName.INT, "row")
+                .returns(viewClassName)
+                .addStatement("this.row = row")
+                .addStatement("return this")
+                .build());
+        classBuilder.addMethod(MethodSpec.methodBuilder("getRowCount")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.INT)
+                .addStatement("return table.getSize()")
+                .build());
+    }
+
+    /**
+     * Accessible methods
+     */
+
+    void addField(Element fieldElement) {
+        String fieldName = fieldElement.getSimpleName().toString();
+        String camelName = ProcessingUtil.snakeToCamel(fieldName);
+        String getterName = "get" + camelName.substring(0, 1).toUpperCase() + camelName.substring(1);
+        JoJoin joinAnnotation = fieldElement.getAnnotation(JoJoin.class);
+
+        if (joinAnnotation != null) {
+            TypeElement joinedModel = ProcessingUtil.getJoinedModelElement(fieldElement);
+            if (joinedModel == null || joinAnnotation.isLazy()) {
+                return;
+            }
+            addJoinGetters(fieldElement, joinedModel, joinAnnotation.getAlias().equals(JoJoin.IGNORE) ? fieldName : joinAnnotation.getAlias(), camelName, getterName);
+            return;
+        }
+
+        String cursorType = getColumnType(fieldElement.asType());
+        if (cursorType == null) {
+            return;
+        }
+        String columnField = camelName + "Column";
+        classBuilder.addField(TypeName.INT, columnField, Modifier.PRIVATE, Modifier.FINAL);
+        constructorBuilder.addStatement("$L = table.getColumnIndex($S)", columnField, fieldName);
+        MethodSpec.Builder getterBuilder = MethodSpec.methodBuilder(getterName)
+                .addModifiers(Modifier.PUBLIC);
+        if (cursorType.equals("String")) {
+            getterBuilder.returns(TypeName.get(String.class))
+                    .addStatement("return table.get$L($L, row)", cursorType, columnField);
+        } else if (fieldElement.asType().getKind() == TypeKind.DECLARED) {
+            getterBuilder.returns(getPrimitiveTypeName(cursorType).box())
+                    .addStatement("return table.isNull($L, row) ? null : table.get$L($L, row)", columnField, cursorType, columnField);
+        } else {
+            getterBuilder.returns(getPrimitiveTypeName(cursorType))
+                    .addStatement("return table.get$L($L, row)", cursorType, columnField);
+        }
+        classBuilder.addMethod(getterBuilder.build());
+    }
+
+    TypeSpec build() {
+        return classBuilder.addMethod(constructorBuilder.build()).build();
+    }
+
+    /**
+     * Private methods
+     */
+
+    private void addJoinGetters(Element fieldElement, TypeElement joinedModel, String childName, String camelName, String getterName) {
+        ClassName childViewClassName = ClassName.get(ClassName.get(joinedModel).packageName() + ".table", joinedModel.getSimpleName() + "View");
+        String tableField = camelName + "Table";
+        String viewField = camelName + "View";
+        classBuilder.addField(COLUMNAR_TABLE_CLASS_NAME, tableField, Modifier.PRIVATE, Modifier.FINAL);
+        classBuilder.addField(childViewClassName, viewField, Modifier.PRIVATE);
+        constructorBuilder.addStatement("$L = table.getChild($S)", tableField, childName);
+
+        boolean isList = joinedModel != ((DeclaredType) fieldElement.asType()).asElement();
+        if (isList) {
+            classBuilder.addMethod(MethodSpec.methodBuilder(getterName + "Count")
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(TypeName.INT)
+                    .addStatement("return $L == null ? 0 : $L.getRowCountOf(row)", tableField, tableField)
+                    .build());
+        }
+        MethodSpec.Builder getterBuilder = MethodSpec.methodBuilder(getterName)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(childViewClassName);
+        if (isList) {
+            getterBuilder.addParameter(TypeName.INT, "index");
+        } else {
+            getterBuilder.beginControlFlow("if ($L == null || $L.getRowCountOf(row) == 0)", tableField, tableField)
+                    .addStatement("return null")
+                    .endControlFlow();
+        }
+        classBuilder.addMethod(getterBuilder
+                .beginControlFlow("if ($L == null)", viewField)
+                .addStatement("$L = new $T($L)", viewField, childViewClassName, tableField)
+                .endControlFlow()
+                .addStatement("return $L.moveTo($L.getFirstRowOf(row)$L)", viewField, tableField, isList ? " + index" : "")
+                .build());
+    }
+
+    private String getColumnType(TypeMirror typeMirror) {
+        switch (typeMirror.getKind()) {
+            case INT:
+                return "Int";
+            case DOUBLE:
+                return "Double";
+            case BOOLEAN:
+                return "Boolean";
+            case DECLARED:
+                TypeElement typeElement = (TypeElement) ((DeclaredType) typeMirror).asElement();
+                if (typeElement.getAnnotation(JoTable.class) != null) {
+                    return null;
+                }
+                String className = ClassName.get(typeElement).toString();
+                if (className.equals(String.class.getName())) {
+                    return "String";
+                } else if (className.equals(Integer.class.getName())) {
+                    return "Int";
+                } else if (className.equals(Double.class.getName())) {
+                    return "Double";
+                } else if (className.equals(Boolean.class.getName())) {
+                    return "Boolean";
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private TypeName getPrimitiveTypeName(String cursorType) {
+        switch (cursorType) {
+            case "Int":
+                return TypeName.INT;
+            case "Double":
+                return TypeName.DOUBLE;
+            default:
+                return TypeName.BOOLEAN;
+        }
+    }
+}